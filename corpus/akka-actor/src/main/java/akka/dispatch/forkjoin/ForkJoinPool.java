@@ -874,6 +874,31 @@ public class ForkJoinPool extends AbstractExecutorService {
         public ForkJoinWorkerThread newThread(ForkJoinPool pool);
     }
 
+    /**
+     * Actions taken by {@link ForkJoinPool#managedBlock} when a
+     * worker is about to block but the pool has already started its
+     * maximum number of compensation threads (see {@link
+     * #getMaxCompensation}).
+     */
+    public static enum CompensationPolicy {
+        /**
+         * Blocks in the calling worker without compensation, so the
+         * pool temporarily runs with reduced parallelism.
+         */
+        RUN_INLINE,
+        /**
+         * Waits until compensation becomes possible again, for
+         * example because another blocked worker was released or
+         * an idle spare thread became available.
+         */
+        QUEUE,
+        /**
+         * Throws a {@link RejectedExecutionException} instead of
+         * blocking.
+         */
+        FAIL
+    }
+
     /**
      * Default ForkJoinWorkerThreadFactory implementation; creates a
      * new ForkJoinWorkerThread.
@@ -1466,6 +1491,12 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     private static final long TIMEOUT_SLOP = 2000000L;
 
+    /**
+     * Time to park between compensation attempts of a managed blocker
+     * waiting under CompensationPolicy.QUEUE.
+     */
+    private static final long COMPENSATION_RETRY = 1000L * 1000L; // 1ms
+
     /**
      * The maximum stolen->joining link depth allowed in method
      * tryHelpStealer.  Must be a power of two.  Depths for legitimate
@@ -1591,6 +1622,11 @@ public class ForkJoinPool extends AbstractExecutorService {
     final ForkJoinWorkerThreadFactory factory;
     final Thread.UncaughtExceptionHandler ueh; // per-worker UEH
     final String workerNamePrefix;             // to create worker name string
+    final int maxCompensation;                 // limit on spare threads
+    final CompensationPolicy compensationPolicy; // action at the limit
+    volatile long compensationCount;           // spare threads created
+    volatile long saturationCount;             // blocks at the limit
+    volatile long blockedNanos;                // time in managed blocks
 
     volatile Object pad10, pad11, pad12, pad13, pad14, pad15, pad16, pad17;
     volatile Object pad18, pad19, pad1a, pad1b;
@@ -2311,6 +2347,19 @@ public class ForkJoinPool extends AbstractExecutorService {
      * may become starved.
      */
     final boolean tryCompensate() {
+        return tryCompensate(MAX_CAP) > 0;
+    }
+
+    /**
+     * Variant of tryCompensate that refuses to create a new thread if
+     * that would leave more than maxSpares threads beyond the target
+     * parallelism.
+     *
+     * @param maxSpares the maximum number of compensation threads
+     * @return positive on success, zero on contention or termination,
+     * and negative if compensation would exceed maxSpares
+     */
+    private int tryCompensate(int maxSpares) {
         int pc = config & SMASK, e, i, tc; long c;
         WorkQueue[] ws; WorkQueue w; Thread p;
         if ((ws = workQueues) != null && (e = (int)(c = ctl)) >= 0) {
@@ -2322,15 +2371,17 @@ public class ForkJoinPool extends AbstractExecutorService {
                     w.eventCount = (e + E_SEQ) & E_MASK;
                     if ((p = w.parker) != null)
                         U.unpark(p);
-                    return true;   // replace with idle worker
+                    return 1;      // replace with idle worker
                 }
             }
             else if ((tc = (short)(c >>> TC_SHIFT)) >= 0 &&
                      (int)(c >> AC_SHIFT) + pc > 1) {
                 long nc = ((c - AC_UNIT) & AC_MASK) | (c & ~AC_MASK);
                 if (U.compareAndSwapLong(this, CTL, c, nc))
-                    return true;   // no compensation
+                    return 1;      // no compensation
             }
+            else if (tc >= maxSpares)
+                return -1;         // saturated
             else if (tc + pc < MAX_CAP) {
                 long nc = ((c + TC_UNIT) & TC_MASK) | (c & ~TC_MASK);
                 if (U.compareAndSwapLong(this, CTL, c, nc)) {
@@ -2341,16 +2392,18 @@ public class ForkJoinPool extends AbstractExecutorService {
                         if ((fac = factory) != null &&
                             (wt = fac.newThread(this)) != null) {
                             wt.start();
-                            return true;
+                            if (tc >= 0)   // beyond target parallelism
+                                U.getAndAddLong(this, COMPENSATIONCOUNT, 1L);
+                            return 1;
                         }
                     } catch (Throwable rex) {
                         ex = rex;
                     }
-                    deregisterWorker(wt, ex); // clean up and return false
+                    deregisterWorker(wt, ex); // clean up and return 0
                 }
             }
         }
-        return false;
+        return 0;
     }
 
     /**
@@ -2867,13 +2920,55 @@ public class ForkJoinPool extends AbstractExecutorService {
                         ForkJoinPool.ForkJoinWorkerThreadFactory factory,
                         Thread.UncaughtExceptionHandler handler,
                         boolean asyncMode) {
+        this(parallelism, factory, handler, asyncMode,
+             MAX_CAP, CompensationPolicy.RUN_INLINE);
+    }
+
+    /**
+     * Creates a {@code ForkJoinPool} with the given parameters and a
+     * limit on the number of threads created to compensate for
+     * workers blocked in {@link #managedBlock}.
+     *
+     * @param parallelism the parallelism level. For default value,
+     * use {@link java.lang.Runtime#availableProcessors}.
+     * @param factory the factory for creating new threads. For default value,
+     * use {@link #defaultForkJoinWorkerThreadFactory}.
+     * @param handler the handler for internal worker threads that
+     * terminate due to unrecoverable errors encountered while executing
+     * tasks. For default value, use {@code null}.
+     * @param asyncMode if true,
+     * establishes local first-in-first-out scheduling mode for forked
+     * tasks that are never joined. For default value, use {@code false}.
+     * @param maxCompensation the maximum number of threads beyond the
+     * parallelism level that may be started for managed blocking.
+     * Values above the implementation limit impose no additional bound.
+     * @param compensationPolicy the action taken by {@link
+     * #managedBlock} once {@code maxCompensation} is reached
+     * @throws IllegalArgumentException if parallelism less than or
+     *         equal to zero, or greater than implementation limit,
+     *         or if maxCompensation is negative
+     * @throws NullPointerException if the factory or the
+     *         compensationPolicy is null
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     */
+    public ForkJoinPool(int parallelism,
+                        ForkJoinPool.ForkJoinWorkerThreadFactory factory,
+                        Thread.UncaughtExceptionHandler handler,
+                        boolean asyncMode,
+                        int maxCompensation,
+                        CompensationPolicy compensationPolicy) {
         checkPermission();
-        if (factory == null)
+        if (factory == null || compensationPolicy == null)
             throw new NullPointerException();
-        if (parallelism <= 0 || parallelism > MAX_CAP)
+        if (parallelism <= 0 || parallelism > MAX_CAP || maxCompensation < 0)
             throw new IllegalArgumentException();
         this.factory = factory;
         this.ueh = handler;
+        this.maxCompensation = Math.min(maxCompensation, MAX_CAP);
+        this.compensationPolicy = compensationPolicy;
         this.config = parallelism | (asyncMode ? (FIFO_QUEUE << 16) : 0);
         long np = (long)(-parallelism); // offset ctl counts
         this.ctl = ((np << AC_SHIFT) & AC_MASK) | ((np << TC_SHIFT) & TC_MASK);
@@ -2895,6 +2990,8 @@ public class ForkJoinPool extends AbstractExecutorService {
         this.ctl = ctl;
         this.factory = factory;
         this.ueh = handler;
+        this.maxCompensation = MAX_CAP;
+        this.compensationPolicy = CompensationPolicy.RUN_INLINE;
         this.workerNamePrefix = "ForkJoinPool.commonPool-worker-";
     }
 
@@ -3186,6 +3283,61 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Returns the maximum number of threads beyond the parallelism
+     * level that this pool starts to compensate for workers blocked
+     * in {@link #managedBlock}.
+     *
+     * @return the compensation limit
+     */
+    public int getMaxCompensation() {
+        return maxCompensation;
+    }
+
+    /**
+     * Returns the action taken by {@link #managedBlock} when the
+     * compensation limit has been reached.
+     *
+     * @return the compensation policy
+     */
+    public CompensationPolicy getCompensationPolicy() {
+        return compensationPolicy;
+    }
+
+    /**
+     * Returns the total number of threads started by this pool to
+     * compensate for blocked workers, either in {@link #managedBlock}
+     * or while joining tasks.
+     *
+     * @return the number of compensation threads created
+     */
+    public long getCompensationCount() {
+        return compensationCount;
+    }
+
+    /**
+     * Returns the number of times a worker entering {@link
+     * #managedBlock} found the compensation limit reached and
+     * therefore applied the {@linkplain #getCompensationPolicy
+     * compensation policy}.
+     *
+     * @return the number of saturated managed blocks
+     */
+    public long getSaturationCount() {
+        return saturationCount;
+    }
+
+    /**
+     * Returns the accumulated time, in nanoseconds, that workers of
+     * this pool have spent inside {@link #managedBlock}. Blocks still
+     * in progress are not included.
+     *
+     * @return the total managed blocking time in nanoseconds
+     */
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
     /**
      * Returns an estimate of the total number of tasks currently held
      * in queues by worker threads (but not including tasks submitted
@@ -3342,6 +3494,7 @@ public class ForkJoinPool extends AbstractExecutorService {
             ", steals = " + st +
             ", tasks = " + qt +
             ", submissions = " + qs +
+            ", compensations = " + compensationCount +
             "]";
     }
 
@@ -3612,38 +3765,24 @@ public class ForkJoinPool extends AbstractExecutorService {
      *
      * If the caller is a {@code ForkJoinTask}, then the pool may
      * first be expanded to ensure parallelism, and later adjusted.
+     * At most {@link #getMaxCompensation} threads are added this way;
+     * beyond that the pool's {@link CompensationPolicy} applies.
      *
      * @param blocker the blocker
      * @throws InterruptedException if blocker.block did so
+     * @throws RejectedExecutionException if the compensation limit is
+     *         reached and the policy is {@link CompensationPolicy#FAIL}
      */
     public static void managedBlock(ManagedBlocker blocker)
         throws InterruptedException {
         Thread t = Thread.currentThread();
         if (t instanceof ForkJoinWorkerThread) {
             ForkJoinPool p = ((ForkJoinWorkerThread)t).pool;
-            while (!blocker.isReleasable()) { // variant of helpSignal
-                WorkQueue[] ws; WorkQueue q; int m, u;
-                if ((ws = p.workQueues) != null && (m = ws.length - 1) >= 0) {
-                    for (int i = 0; i <= m; ++i) {
-                        if (blocker.isReleasable())
-                            return;
-                        if ((q = ws[i]) != null && q.base - q.top < 0) {
-                            p.signalWork(q);
-                            if ((u = (int)(p.ctl >>> 32)) >= 0 ||
-                                (u >> UAC_SHIFT) >= 0)
-                                break;
-                        }
-                    }
-                }
-                if (p.tryCompensate()) {
-                    try {
-                        do {} while (!blocker.isReleasable() &&
-                                     !blocker.block());
-                    } finally {
-                        p.incrementActiveCount();
-                    }
-                    break;
-                }
+            long start = System.nanoTime();
+            try {
+                p.compensatedBlock(blocker);
+            } finally {
+                U.getAndAddLong(p, BLOCKEDNANOS, System.nanoTime() - start);
             }
         }
         else {
@@ -3652,6 +3791,64 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
     }
 
+    /**
+     * Body of managedBlock for workers of this pool: tries to
+     * compensate for the blocked worker, applying compensationPolicy
+     * if that would exceed maxCompensation.
+     *
+     * @param blocker the blocker
+     * @throws InterruptedException if blocker.block did so, or if
+     * interrupted while waiting under CompensationPolicy.QUEUE
+     */
+    private void compensatedBlock(ManagedBlocker blocker)
+        throws InterruptedException {
+        boolean saturated = false;
+        while (!blocker.isReleasable()) { // variant of helpSignal
+            WorkQueue[] ws; WorkQueue q; int m, u, r;
+            if ((ws = workQueues) != null && (m = ws.length - 1) >= 0) {
+                for (int i = 0; i <= m; ++i) {
+                    if (blocker.isReleasable())
+                        return;
+                    if ((q = ws[i]) != null && q.base - q.top < 0) {
+                        signalWork(q);
+                        if ((u = (int)(ctl >>> 32)) >= 0 ||
+                            (u >> UAC_SHIFT) >= 0)
+                            break;
+                    }
+                }
+            }
+            if ((r = tryCompensate(maxCompensation)) > 0) {
+                try {
+                    do {} while (!blocker.isReleasable() &&
+                                 !blocker.block());
+                } finally {
+                    incrementActiveCount();
+                }
+                break;
+            }
+            else if (r < 0) {
+                if (!saturated) {
+                    saturated = true;
+                    U.getAndAddLong(this, SATURATIONCOUNT, 1L);
+                }
+                CompensationPolicy policy = compensationPolicy;
+                if (policy == CompensationPolicy.RUN_INLINE) {
+                    do {} while (!blocker.isReleasable() &&
+                                 !blocker.block());
+                    break;
+                }
+                else if (policy == CompensationPolicy.FAIL)
+                    throw new RejectedExecutionException
+                        ("Compensation limit of " + maxCompensation +
+                         " threads reached in " + this);
+                else if (Thread.interrupted())
+                    throw new InterruptedException();
+                else
+                    U.park(false, COMPENSATION_RETRY);
+            }
+        }
+    }
+
     // AbstractExecutorService overrides.  These rely on undocumented
     // fact that ForkJoinTask.adapt returns ForkJoinTasks that also
     // implement RunnableFuture.
@@ -3674,6 +3871,9 @@ public class ForkJoinPool extends AbstractExecutorService {
     private static final long PLOCK;
     private static final long INDEXSEED;
     private static final long QLOCK;
+    private static final long COMPENSATIONCOUNT;
+    private static final long SATURATIONCOUNT;
+    private static final long BLOCKEDNANOS;
 
     static {
         // initialize field offsets for CAS etc
@@ -3688,6 +3888,12 @@ public class ForkJoinPool extends AbstractExecutorService {
                 (k.getDeclaredField("plock"));
             INDEXSEED = U.objectFieldOffset
                 (k.getDeclaredField("indexSeed"));
+            COMPENSATIONCOUNT = U.objectFieldOffset
+                (k.getDeclaredField("compensationCount"));
+            SATURATIONCOUNT = U.objectFieldOffset
+                (k.getDeclaredField("saturationCount"));
+            BLOCKEDNANOS = U.objectFieldOffset
+                (k.getDeclaredField("blockedNanos"));
             Class<?> tk = Thread.class;
             PARKBLOCKER = U.objectFieldOffset
                 (tk.getDeclaredField("parkBlocker"));
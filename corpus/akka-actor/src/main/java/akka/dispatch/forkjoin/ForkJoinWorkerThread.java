@@ -31,11 +31,14 @@ public class ForkJoinWorkerThread extends Thread {
      * workQueue field is not set until a call to registerWorker
      * completes. This leads to a visibility race, that is tolerated
      * by requiring that the workQueue field is only accessed by the
-     * owning thread.
+     * owning thread. The same holds for the random field, which
+     * holds the generator returned by ThreadLocalRandom.current()
+     * when called by this thread.
      */
 
     final ForkJoinPool pool;                // the pool this thread works in
     final ForkJoinPool.WorkQueue workQueue; // work-stealing mechanics
+    ThreadLocalRandom random;               // created on first use by owner
 
     /**
      * Creates a ForkJoinWorkerThread operating in the given pool.
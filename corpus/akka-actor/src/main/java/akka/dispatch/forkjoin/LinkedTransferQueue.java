@@ -12,10 +12,13 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * An unbounded {@link TransferQueue} based on linked nodes.
+ * An optionally-bounded {@link TransferQueue} based on linked nodes.
  * This queue orders elements FIFO (first-in-first-out) with respect
  * to any given producer.  The <em>head</em> of the queue is that
  * element that has been on the queue the longest time for some
@@ -27,6 +30,9 @@ import java.util.concurrent.locks.LockSupport;
  * asynchronous nature of these queues, determining the current number
  * of elements requires a traversal of the elements, and so may report
  * inaccurate results if this collection is modified during traversal.
+ * Methods {@link #estimatedSize} and {@link
+ * #estimatedWaitingConsumerCount} instead return approximations in
+ * constant time, suitable for frequent monitoring.
  * Additionally, the bulk operations {@code addAll},
  * {@code removeAll}, {@code retainAll}, {@code containsAll},
  * {@code equals}, and {@code toArray} are <em>not</em> guaranteed
@@ -34,6 +40,12 @@ import java.util.concurrent.locks.LockSupport;
  * concurrently with an {@code addAll} operation might view only some
  * of the added elements.
  *
+ * <p>The optional capacity bound constructor argument serves as a
+ * way to prevent excessive queue expansion. Elements handed directly
+ * to waiting consumers never count against the capacity; only those
+ * that have to be enqueued do. If unspecified, the capacity is equal
+ * to {@link Integer#MAX_VALUE} and the queue never blocks producers.
+ *
  * <p>This class and its iterator implement all of the
  * <em>optional</em> methods of the {@link Collection} and {@link
  * Iterator} interfaces.
@@ -376,6 +388,57 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * sweeps. However, the associated garbage chains terminate when
      * some successor ultimately falls off the head of the list and is
      * self-linked.
+     *
+     * *** Bounded mode ***
+     *
+     * When constructed with a capacity, producers that may append a
+     * data node first reserve room by CASing field "count" (which is
+     * otherwise unused), and room is released by whoever retires an
+     * appended data node: the consumer matching it, the producer
+     * cancelling it, or a remover. A producer that reserved room but
+     * then matched a waiting consumer in xfer releases it again, so
+     * the handoff path itself is unchanged. Producers that find the
+     * queue full block on a lock and condition that are only touched
+     * when field "putWaiters" shows there are such producers, in the
+     * same way LinkedBlockingQueue guards its notFull condition.
+     *
+     * *** Elimination ***
+     *
+     * Under heavy contention most CASes in xfer fail because many
+     * threads compete for the same head or tail nodes. Following
+     * Hendler, Shavit and Yerushalmi's elimination backoff (and
+     * Moir et al's application of it to FIFO queues), a producer and
+     * a consumer that would otherwise both retry against the list
+     * can instead pair off through a small array of slots (the
+     * "arena") without touching the list at all. A thread visiting a
+     * slot holding an unmatched node of the opposite mode matches it
+     * exactly as it would match a list node; a thread that is about
+     * to append may instead publish its node in an empty slot and
+     * spin briefly for a partner before cancelling it and falling
+     * back to the list. Slot nodes never park.
+     *
+     * Elimination must not reorder the elements of a producer, so a
+     * producer only uses the arena when it has seen no unmatched
+     * data in the list, which implies that all its previous elements
+     * have been received. Consumers may always use it: any element
+     * they obtain there could equally have been appended to an empty
+     * list and taken immediately.
+     *
+     * The arena costs a random slot probe per operation, which is
+     * only worthwhile under contention. Failed CASes in xfer
+     * increment the racy estimate "contention", and unsuccessful
+     * arena waits decrement it; the arena is created and used only
+     * while the estimate is at least ARENA_THRESHOLD.
+     *
+     * *** Counting ***
+     *
+     * Exact counts need a traversal (see countOfMode), so we also
+     * keep striped counters of the data and request nodes in the
+     * list, incremented after a successful append and decremented
+     * wherever a list node is retired by matching, cancellation or
+     * removal. Nodes paired off in the arena are never counted. As
+     * a node may be retired before its appender has counted it, the
+     * counters can transiently lag and are clamped when read.
      */
 
     /** True if on multiprocessor */
@@ -410,6 +473,31 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      */
     static final int SWEEP_THRESHOLD = 32;
 
+    /**
+     * The number of slots in the elimination arena. A power of two,
+     * scaled so that about half the processors can pair off at once.
+     */
+    private static final int ARENA_LENGTH =
+        Math.min(Integer.highestOneBit(Math.max(1,
+            Runtime.getRuntime().availableProcessors() >>> 1)), 64);
+
+    /**
+     * The contention estimate at which the elimination arena is used.
+     */
+    private static final int ARENA_THRESHOLD = 1 << 4;
+
+    /**
+     * Upper bound of the contention estimate, limiting how long the
+     * arena stays in use after contention subsides.
+     */
+    private static final int MAX_CONTENTION = ARENA_THRESHOLD << 1;
+
+    /**
+     * The number of times to spin waiting for a partner in an arena
+     * slot before cancelling.
+     */
+    private static final int ARENA_SPINS = CHAINED_SPINS;
+
     /**
      * Queue nodes. Uses Object, not E, for items to allow forgetting
      * them after use.  Relies heavily on Unsafe mechanics to minimize
@@ -441,6 +529,15 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             this.isData = isData;
         }
 
+        /**
+         * Links an unpublished node to its successor when building a
+         * chain for a bulk append.  Uses relaxed write because the
+         * chain can only be seen after publication via casNext.
+         */
+        final void initNext(Node val) {
+            UNSAFE.putObject(this, nextOffset, val);
+        }
+
         /**
          * Links node to itself to avoid garbage retention.  Called
          * only after CASing head field, so uses relaxed write.
@@ -535,6 +632,33 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     /** The number of apparent failures to unsplice removed nodes */
     private transient volatile int sweepVotes;
 
+    /** The capacity bound, or Integer.MAX_VALUE if none */
+    private final int capacity;
+
+    /** Number of enqueued or reserved elements; used only if bounded */
+    private transient volatile int count;
+
+    /** Number of producers waiting for room; modified under putLock */
+    private transient volatile int putWaiters;
+
+    /** Lock held by producers waiting for room; null if unbounded */
+    private final ReentrantLock putLock;
+
+    /** Wait queue for producers waiting for room; null if unbounded */
+    private final Condition notFull;
+
+    /** Elimination arena; null until contention is first observed */
+    private transient volatile Node[] arena;
+
+    /** Racy estimate of CAS contention in xfer */
+    private transient volatile int contention;
+
+    /** Approximate number of unmatched data nodes */
+    private transient LongAdder dataCount = new LongAdder();
+
+    /** Approximate number of unmatched request nodes */
+    private transient LongAdder requestCount = new LongAdder();
+
     // CAS methods for fields
     private boolean casTail(Node cmp, Node val) {
         return UNSAFE.compareAndSwapObject(this, tailOffset, cmp, val);
@@ -548,6 +672,77 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         return UNSAFE.compareAndSwapInt(this, sweepVotesOffset, cmp, val);
     }
 
+    /* -------------- Capacity methods -------------- */
+
+    /**
+     * Tries to reserve room for k elements in a bounded queue.
+     */
+    private boolean tryReserve(int k) {
+        for (int c;;) {
+            if ((c = count) > capacity - k)
+                return false;
+            if (UNSAFE.compareAndSwapInt(this, countOffset, c, c + k))
+                return true;
+        }
+    }
+
+    /**
+     * Reserves room for k elements in a bounded queue, waiting if
+     * necessary.
+     *
+     * @param k the number of elements, at most capacity
+     * @param timed if true, wait only until deadline
+     * @param deadline the System.nanoTime value to give up at
+     * @return true if reserved, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private boolean awaitRoom(int k, boolean timed, long deadline)
+        throws InterruptedException {
+        if (tryReserve(k))
+            return true;
+        final ReentrantLock lock = putLock;
+        lock.lockInterruptibly();
+        try {
+            ++putWaiters;
+            try {
+                while (!tryReserve(k)) {
+                    if (!timed)
+                        notFull.await();
+                    else {
+                        long nanos = deadline - System.nanoTime();
+                        if (nanos <= 0L)
+                            return false;
+                        notFull.awaitNanos(nanos);
+                    }
+                }
+                return true;
+            } finally {
+                --putWaiters;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases room for k retired elements of a bounded queue, waking
+     * up producers waiting for it. Has no effect if unbounded.
+     */
+    final void releaseRoom(int k) {
+        if (capacity != Integer.MAX_VALUE && k > 0) {
+            UNSAFE.getAndAddInt(this, countOffset, -k);
+            if (putWaiters != 0) {
+                final ReentrantLock lock = putLock;
+                lock.lock();
+                try {
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
     /*
      * Possible values for "how" argument in xfer method.
      */
@@ -576,41 +771,53 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         if (haveData && (e == null))
             throw new NullPointerException();
         Node s = null;                        // the node to append, if needed
+        Object x;                             // item obtained by elimination
 
         retry:
         for (;;) {                            // restart on append race
+            boolean mayEliminate = true;      // false if producer saw data
 
             for (Node h = head, p = h; p != null;) { // find & match first node
                 boolean isData = p.isData;
                 Object item = p.item;
                 if (item != p && (item != null) == isData) { // unmatched
-                    if (isData == haveData)   // can't match
+                    if (isData == haveData) { // can't match
+                        mayEliminate = !haveData;
                         break;
+                    }
                     if (p.casItem(item, e)) { // match
-                        for (Node q = p; q != h;) {
-                            Node n = q.next;  // update by 2 unless singleton
-                            if (head == h && casHead(h, n == null ? q : n)) {
-                                h.forgetNext();
-                                break;
-                            }                 // advance and retry
-                            if ((h = head)   == null ||
-                                (q = h.next) == null || !q.isMatched())
-                                break;        // unless slack < 2
-                        }
+                        skipMatched(h, p);
+                        retired(isData, 1);
+                        if (!isData && how != NOW)
+                            releaseRoom(1);   // unused room
                         LockSupport.unpark(p.waiter);
                         return LinkedTransferQueue.<E>cast(item);
                     }
+                    if (noteContention() &&   // lost race; try to pair off
+                        (x = eliminate(e, haveData, false)) != e) {
+                        if (haveData && how != NOW)
+                            releaseRoom(1);
+                        return LinkedTransferQueue.<E>cast(x);
+                    }
                 }
                 Node n = p.next;
                 p = (p != n) ? n : (h = head); // Use head if p offlist
             }
 
+            if (mayEliminate && contention >= ARENA_THRESHOLD &&
+                (x = eliminate(e, haveData, how != NOW)) != e) {
+                if (haveData && how != NOW)
+                    releaseRoom(1);
+                return LinkedTransferQueue.<E>cast(x);
+            }
+
             if (how != NOW) {                 // No matches available
                 if (s == null)
                     s = new Node(e, haveData);
                 Node pred = tryAppend(s, haveData);
                 if (pred == null)
                     continue retry;           // lost race vs opposite mode
+                (haveData ? dataCount : requestCount).increment();
                 if (how != ASYNC)
                     return awaitMatch(s, pred, e, (how == TIMED), nanos);
             }
@@ -618,6 +825,106 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Accounts for k list nodes of the given mode that were matched,
+     * cancelled or removed, releasing their room if bounded.
+     */
+    private void retired(boolean isData, int k) {
+        if (isData) {
+            dataCount.add(-k);
+            releaseRoom(k);
+        }
+        else
+            requestCount.add(-k);
+    }
+
+    /**
+     * Records a failed CAS in xfer, creating the elimination arena
+     * once contention first reaches ARENA_THRESHOLD.
+     *
+     * @return true if the arena should be used
+     */
+    private boolean noteContention() {
+        int c = contention;
+        if (c < MAX_CONTENTION)
+            contention = ++c;
+        if (c < ARENA_THRESHOLD)
+            return false;
+        if (arena == null)
+            UNSAFE.compareAndSwapObject(this, arenaOffset, null,
+                                        new Node[ARENA_LENGTH]);
+        return true;
+    }
+
+    /**
+     * Tries to pair off with a thread of the opposite mode in a
+     * random slot of the elimination arena.
+     *
+     * @param e the item or null for take
+     * @param haveData true if this is a put, else a take
+     * @param canWait true if this thread may publish its own node in
+     * an empty slot and spin waiting for a partner
+     * @return an item if matched, else e
+     */
+    private Object eliminate(Object e, boolean haveData, boolean canWait) {
+        Node[] a = arena;
+        if (a == null)
+            return e;
+        long j = ((long)ThreadLocalRandom.current().nextInt(a.length) <<
+                  ARENA_SHIFT) + ARENA_BASE;
+        Node q = (Node)UNSAFE.getObjectVolatile(a, j);
+        if (q != null) {
+            Object item = q.item;
+            if (item != q && (item != null) == q.isData) { // unmatched
+                if (q.isData != haveData && q.casItem(item, e)) {
+                    UNSAFE.compareAndSwapObject(a, j, q, null);
+                    return item;
+                }
+            }
+            else                              // help clear stale slot
+                UNSAFE.compareAndSwapObject(a, j, q, null);
+        }
+        else if (canWait) {
+            Node s = new Node(e, haveData);
+            if (UNSAFE.compareAndSwapObject(a, j, null, s)) {
+                Object item;
+                for (int spins = ARENA_SPINS;
+                     (item = s.item) == e && spins > 0; --spins)
+                    ;
+                if (item == e && s.casItem(e, s)) { // cancel
+                    int c = contention;       // no partner; decay
+                    if (c > 0)
+                        contention = c - 1;
+                }
+                else
+                    item = s.item;            // matched meanwhile
+                UNSAFE.compareAndSwapObject(a, j, s, null);
+                return item;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Advances head past matched node p, previously found while
+     * traversing from h, leaving a slack of at most one.
+     *
+     * @param h the head when the traversal leading to p started
+     * @param p the last node matched by the caller
+     */
+    private void skipMatched(Node h, Node p) {
+        for (Node q = p; q != h;) {
+            Node n = q.next;  // update by 2 unless singleton
+            if (head == h && casHead(h, n == null ? q : n)) {
+                h.forgetNext();
+                break;
+            }                 // advance and retry
+            if ((h = head)   == null ||
+                (q = h.next) == null || !q.isMatched())
+                break;        // unless slack < 2
+        }
+    }
+
     /**
      * Tries to append node s as tail.
      *
@@ -628,11 +935,30 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * predecessor
      */
     private Node tryAppend(Node s, boolean haveData) {
+        return tryAppend(s, s, haveData);
+    }
+
+    /**
+     * Tries to append the chain of nodes from s to last, already
+     * linked through their next fields, as tail.
+     *
+     * @param s the first node to append
+     * @param last the last node of the chain, or s if appending a
+     * single node
+     * @param haveData true if appending in data mode
+     * @return null on failure due to losing race with append in
+     * different mode, else s's predecessor, or s itself if no
+     * predecessor
+     */
+    private Node tryAppend(Node s, Node last, boolean haveData) {
         for (Node t = tail, p = t;;) {        // move p to last node and append
             Node n, u;                        // temps for reads of next & tail
             if (p == null && (p = head) == null) {
-                if (casHead(null, s))
+                if (casHead(null, s)) {
+                    if (last != s)
+                        casTail(null, last);  // skip over the chain
                     return s;                 // initialize
+                }
             }
             else if (p.cannotPrecede(haveData))
                 return null;                  // lost race vs opposite mode
@@ -642,17 +968,120 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             else if (!p.casNext(null, s))
                 p = p.next;                   // re-read on CAS failure
             else {
-                if (p != t) {                 // update if slack now >= 2
-                    while ((tail != t || !casTail(t, s)) &&
+                if (p != t || last != s) {    // update if slack now >= 2
+                    Node x = last;
+                    while ((tail != t || !casTail(t, x)) &&
                            (t = tail)   != null &&
-                           (s = t.next) != null && // advance and retry
-                           (s = s.next) != null && s != t);
+                           (x = t.next) != null && // advance and retry
+                           (x = x.next) != null && x != t);
                 }
                 return p;
             }
         }
     }
 
+    /**
+     * Implements offerAll and transferAll: hands the given items to
+     * waiting consumers while there are any, then appends the
+     * remaining ones as a single pre-linked chain. If bounded, room
+     * for all items must have been reserved by the caller.
+     *
+     * @param items the items, all non-null
+     * @param i the index of the first item to insert
+     * @param n the index after the last item to insert
+     * @param nodes if non-null, receives the appended node for each
+     * item, or null for items handed off directly
+     * @return the predecessor of the first appended node, or that
+     * node itself if it has no predecessor, or null if no node was
+     * appended
+     */
+    private Node appendAll(Object[] items, int i, int n, Node[] nodes) {
+        for (;;) {
+            while (i < n &&                   // match waiting consumers
+                   xfer(LinkedTransferQueue.<E>cast(items[i]), true, NOW, 0) == null) {
+                releaseRoom(1);
+                if (nodes != null)
+                    nodes[i] = null;          // clear after lost race
+                ++i;
+            }
+            if (i == n)
+                return null;
+            Node first = new Node(items[i], true), last = first;
+            if (nodes != null)
+                nodes[i] = first;
+            for (int j = i + 1; j < n; ++j) {
+                Node s = new Node(items[j], true);
+                last.initNext(s);
+                last = s;
+                if (nodes != null)
+                    nodes[j] = s;
+            }
+            Node pred = tryAppend(first, last, true);
+            if (pred != null) {
+                dataCount.add(n - i);
+                return pred;
+            }                                 // else lost race vs consumers
+        }
+    }
+
+    /**
+     * Returns the elements of the given collection as an array,
+     * checking that the collection is neither null, this queue, nor
+     * contains null elements.
+     */
+    private Object[] itemsOf(Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        Object[] items = c.toArray();
+        for (Object x : items) {
+            if (x == null)
+                throw new NullPointerException();
+        }
+        return items;
+    }
+
+    /**
+     * Implements drainTo: claims consecutive data nodes from the
+     * front of the queue in a single traversal, advancing head only
+     * once for the whole run.
+     */
+    private int drainData(Collection<? super E> c, int maxElements) {
+        int n = 0;
+        Node h = head, last = null;
+        try {
+            for (Node p = h; p != null && n < maxElements;) {
+                boolean isData = p.isData;
+                Object item = p.item;
+                if (item != p && (item != null) == isData) { // unmatched
+                    if (!isData)              // consumers are waiting
+                        break;
+                    if (p.casItem(item, null)) {
+                        last = p;
+                        LockSupport.unpark(p.waiter);
+                        c.add(LinkedTransferQueue.<E>cast(item));
+                        ++n;
+                    }
+                }
+                Node nx = p.next;
+                if (p != nx)
+                    p = nx;
+                else {                        // offlist; restart from head
+                    if (last != null)
+                        skipMatched(h, last);
+                    last = null;
+                    p = h = head;
+                }
+            }
+        } finally {
+            if (last != null)
+                skipMatched(h, last);
+            retired(true, n);
+        }
+        return n;
+    }
+
     /**
      * Spins/yields/blocks until node s is matched or caller gives up.
      *
@@ -680,6 +1109,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             }
             if ((w.isInterrupted() || (timed && nanos <= 0)) &&
                     s.casItem(e, s)) {        // cancel
+                retired(s.isData, 1);
                 unsplice(pred, s);
                 return e;
             }
@@ -877,8 +1307,10 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             if (lastRet == null)
                 throw new IllegalStateException();
             this.lastRet = null;
-            if (lastRet.tryMatchData())
+            if (lastRet.tryMatchData()) {
+                retired(true, 1);
                 unsplice(lastPred, lastRet);
+            }
         }
     }
 
@@ -963,6 +1395,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
                 if (p.isData) {
                     if (item != null && item != p && e.equals(item) &&
                         p.tryMatchData()) {
+                        retired(true, 1);
                         unsplice(pred, p);
                         return true;
                     }
@@ -981,13 +1414,34 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
 
 
     /**
-     * Creates an initially empty {@code LinkedTransferQueue}.
+     * Creates an initially empty {@code LinkedTransferQueue} with a
+     * capacity of {@link Integer#MAX_VALUE}.
      */
     public LinkedTransferQueue() {
+        this.capacity = Integer.MAX_VALUE;
+        this.putLock = null;
+        this.notFull = null;
+    }
+
+    /**
+     * Creates an initially empty {@code LinkedTransferQueue} with the
+     * given (fixed) capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is not greater
+     *         than zero
+     */
+    public LinkedTransferQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        this.putLock = new ReentrantLock();
+        this.notFull = putLock.newCondition();
     }
 
     /**
-     * Creates a {@code LinkedTransferQueue}
+     * Creates a {@code LinkedTransferQueue} with a capacity of
+     * {@link Integer#MAX_VALUE},
      * initially containing the elements of the given collection,
      * added in traversal order of the collection's iterator.
      *
@@ -1001,55 +1455,188 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     }
 
     /**
-     * Inserts the specified element at the tail of this queue.
-     * As the queue is unbounded, this method will never block.
+     * Inserts the specified element at the tail of this queue,
+     * waiting if necessary for room to become available. If the
+     * queue is unbounded, this method will never block.
      *
      * @throws NullPointerException if the specified element is null
+     * @throws InterruptedException if the queue is bounded and the
+     *  thread is interrupted while waiting
      */
-    public void put(E e) {
+    public void put(E e) throws InterruptedException {
+        if (capacity != Integer.MAX_VALUE) {
+            if (e == null)
+                throw new NullPointerException();
+            awaitRoom(1, false, 0L);
+        }
         xfer(e, true, ASYNC, 0);
     }
 
     /**
-     * Inserts the specified element at the tail of this queue.
-     * As the queue is unbounded, this method will never block or
-     * return {@code false}.
+     * Inserts the specified element at the tail of this queue,
+     * waiting if necessary up to the specified wait time for room
+     * to become available. If the queue is unbounded, this method
+     * will never block or return {@code false}.
      *
-     * @return {@code true} (as specified by
+     * @return {@code true} if successful, or {@code false} if the
+     *  specified waiting time elapses before room is available (as
+     *  specified by
      *  {@link java.util.concurrent.BlockingQueue#offer(Object,long,TimeUnit)
      *  BlockingQueue.offer})
      * @throws NullPointerException if the specified element is null
+     * @throws InterruptedException if the queue is bounded and the
+     *  thread is interrupted while waiting
      */
-    public boolean offer(E e, long timeout, TimeUnit unit) {
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (capacity != Integer.MAX_VALUE) {
+            if (e == null)
+                throw new NullPointerException();
+            if (!awaitRoom(1, true, System.nanoTime() + unit.toNanos(timeout)))
+                return false;
+        }
         xfer(e, true, ASYNC, 0);
         return true;
     }
 
     /**
-     * Inserts the specified element at the tail of this queue.
-     * As the queue is unbounded, this method will never return {@code false}.
+     * Inserts the specified element at the tail of this queue if
+     * it is possible to do so immediately without exceeding the
+     * queue's capacity. If the queue is unbounded, this method will
+     * never return {@code false}.
      *
-     * @return {@code true} (as specified by {@link Queue#offer})
+     * @return {@code true} if the element was added to this queue,
+     *  else {@code false} (as specified by {@link Queue#offer})
      * @throws NullPointerException if the specified element is null
      */
     public boolean offer(E e) {
+        if (capacity != Integer.MAX_VALUE) {
+            if (e == null)
+                throw new NullPointerException();
+            if (!tryReserve(1))
+                return false;
+        }
         xfer(e, true, ASYNC, 0);
         return true;
     }
 
     /**
-     * Inserts the specified element at the tail of this queue.
-     * As the queue is unbounded, this method will never throw
-     * {@link IllegalStateException} or return {@code false}.
+     * Inserts the specified element at the tail of this queue if
+     * it is possible to do so immediately without exceeding the
+     * queue's capacity. If the queue is unbounded, this method will
+     * never throw {@link IllegalStateException} or return {@code false}.
      *
      * @return {@code true} (as specified by {@link Collection#add})
+     * @throws IllegalStateException if the queue is full
      * @throws NullPointerException if the specified element is null
      */
     public boolean add(E e) {
-        xfer(e, true, ASYNC, 0);
+        if (offer(e))
+            return true;
+        throw new IllegalStateException("Queue full");
+    }
+
+    /**
+     * Inserts all elements of the given collection at the tail of
+     * this queue, in traversal order of the collection's iterator.
+     * Elements are first handed directly to waiting consumers, if
+     * any; the remaining ones are linked in advance and appended with
+     * a single CAS, so other producers and consumers never observe
+     * part of them in between. This method never blocks; if the
+     * queue is bounded and lacks room for all elements, none of them
+     * are inserted.
+     *
+     * @param c the elements to insert
+     * @return {@code true} if this queue changed as a result of the call
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public boolean offerAll(Collection<? extends E> c) {
+        Object[] items = itemsOf(c);
+        return insertAll(items) && items.length > 0;
+    }
+
+    /**
+     * Inserts all elements of the given collection at the tail of
+     * this queue, as by {@link #offerAll}.
+     *
+     * @throws IllegalStateException if the queue is bounded and lacks
+     *         room for all elements
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     */
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] items = itemsOf(c);
+        if (!insertAll(items))
+            throw new IllegalStateException("Queue full");
+        return items.length > 0;
+    }
+
+    /**
+     * Implements offerAll and addAll.
+     *
+     * @return false if bounded and room could not be reserved
+     */
+    private boolean insertAll(Object[] items) {
+        int n = items.length;
+        if (capacity != Integer.MAX_VALUE && n > 0 && !tryReserve(n))
+            return false;
+        appendAll(items, 0, n, null);
         return true;
     }
 
+    /**
+     * Transfers all elements of the given collection to consumers,
+     * waiting if necessary to do so.
+     *
+     * <p>More precisely, transfers elements immediately while there
+     * exist consumers already waiting to receive them, else inserts
+     * the remaining elements as in {@link #offerAll} and waits until
+     * all of them are received by consumers. If the queue is bounded,
+     * elements are inserted in batches of at most its capacity, each
+     * waiting for room to become available. If interrupted while
+     * waiting, elements not yet received are removed from the queue.
+     *
+     * @param c the elements to transfer
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     * @throws IllegalArgumentException if the collection is this queue
+     * @throws InterruptedException if interrupted while waiting,
+     *         in which case some elements may have been received
+     */
+    public void transferAll(Collection<? extends E> c)
+        throws InterruptedException {
+        Object[] items = itemsOf(c);
+        int n = items.length;
+        Node[] nodes = new Node[n];
+        for (int from = 0, to; from < n; from = to) {
+            to = (n - from > capacity) ? from + capacity : n;
+            if (capacity != Integer.MAX_VALUE)
+                awaitRoom(to - from, false, 0L);
+            Node pred = appendAll(items, from, to, nodes);
+            for (int i = from; i < to; ++i) {
+                Node s = nodes[i];
+                if (s == null)
+                    continue;
+                E e = LinkedTransferQueue.<E>cast(items[i]);
+                if (awaitMatch(s, pred, e, false, 0) == e) {
+                    for (int j = i + 1; j < to; ++j) { // cancel rest
+                        Node q = nodes[j];
+                        if (q.casItem(items[j], q)) {
+                            retired(true, 1);
+                            unsplice(nodes[j - 1], q);
+                        }
+                    }
+                    Thread.interrupted(); // failure possible only due to interrupt
+                    throw new InterruptedException();
+                }
+                pred = s;
+            }
+        }
+    }
+
     /**
      * Transfers the element to a waiting consumer immediately, if possible.
      *
@@ -1070,12 +1657,18 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * <p>More precisely, transfers the specified element immediately
      * if there exists a consumer already waiting to receive it (in
      * {@link #take} or timed {@link #poll(long,TimeUnit) poll}),
-     * else inserts the specified element at the tail of this queue
-     * and waits until the element is received by a consumer.
+     * else inserts the specified element at the tail of this queue,
+     * waiting if necessary for room to become available, and waits
+     * until the element is received by a consumer.
      *
      * @throws NullPointerException if the specified element is null
      */
     public void transfer(E e) throws InterruptedException {
+        if (capacity != Integer.MAX_VALUE) {
+            if (e == null)
+                throw new NullPointerException();
+            awaitRoom(1, false, 0L);
+        }
         if (xfer(e, true, SYNC, 0) != null) {
             Thread.interrupted(); // failure possible only due to interrupt
             throw new InterruptedException();
@@ -1098,7 +1691,16 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      */
     public boolean tryTransfer(E e, long timeout, TimeUnit unit)
         throws InterruptedException {
-        if (xfer(e, true, TIMED, unit.toNanos(timeout)) == null)
+        long nanos = unit.toNanos(timeout);
+        if (capacity != Integer.MAX_VALUE) {
+            if (e == null)
+                throw new NullPointerException();
+            long deadline = System.nanoTime() + nanos;
+            if (!awaitRoom(1, true, deadline))
+                return false;
+            nanos = deadline - System.nanoTime();
+        }
+        if (xfer(e, true, TIMED, nanos) == null)
             return true;
         if (!Thread.interrupted())
             return false;
@@ -1129,16 +1731,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * @throws IllegalArgumentException {@inheritDoc}
      */
     public int drainTo(Collection<? super E> c) {
-        if (c == null)
-            throw new NullPointerException();
-        if (c == this)
-            throw new IllegalArgumentException();
-        int n = 0;
-        for (E e; (e = poll()) != null;) {
-            c.add(e);
-            ++n;
-        }
-        return n;
+        return drainTo(c, Integer.MAX_VALUE);
     }
 
     /**
@@ -1150,12 +1743,7 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             throw new NullPointerException();
         if (c == this)
             throw new IllegalArgumentException();
-        int n = 0;
-        for (E e; n < maxElements && (e = poll()) != null;) {
-            c.add(e);
-            ++n;
-        }
-        return n;
+        return drainData(c, maxElements);
     }
 
     /**
@@ -1202,13 +1790,18 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
      * {@code Integer.MAX_VALUE}.
      *
      * <p>Beware that, unlike in most collections, this method is
-     * <em>NOT</em> a constant-time operation. Because of the
-     * asynchronous nature of these queues, determining the current
-     * number of elements requires an O(n) traversal.
+     * <em>NOT</em> a constant-time operation for an unbounded queue.
+     * Because of the asynchronous nature of these queues, determining
+     * the current number of elements requires an O(n) traversal.
+     * A bounded queue instead reports the number of elements
+     * occupying its capacity, which may transiently include elements
+     * about to be inserted or handed directly to a consumer.
      *
      * @return the number of elements in this queue
      */
     public int size() {
+        if (capacity != Integer.MAX_VALUE)
+            return count;
         return countOfMode(true);
     }
 
@@ -1216,6 +1809,42 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
         return countOfMode(false);
     }
 
+    /**
+     * Returns an estimate of the number of elements in this queue,
+     * computed in constant time from counters maintained as elements
+     * are inserted and received. Unlike {@link #size}, the estimate
+     * does not require a traversal, but may lag concurrent
+     * insertions and removals, so it is best used for monitoring and
+     * heuristics rather than for synchronization control.
+     *
+     * @return an estimate of the number of elements in this queue
+     */
+    public int estimatedSize() {
+        return clamp(dataCount.sum());
+    }
+
+    /**
+     * Returns an estimate of the number of consumers waiting to
+     * receive elements via {@link #take} or timed {@link #poll(long,
+     * TimeUnit) poll}, computed in constant time. Unlike {@link
+     * #getWaitingConsumerCount}, the estimate does not require a
+     * traversal, but may lag concurrent arrivals and departures of
+     * consumers.
+     *
+     * @return an estimate of the number of waiting consumers
+     */
+    public int estimatedWaitingConsumerCount() {
+        return clamp(requestCount.sum());
+    }
+
+    /**
+     * Converts a counter sum into a count, hiding transient lag.
+     */
+    private static int clamp(long n) {
+        return (n <= 0L) ? 0 :
+            (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
     /**
      * Removes a single instance of the specified element from this queue,
      * if it is present.  More formally, removes an element {@code e} such
@@ -1254,15 +1883,20 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     }
 
     /**
-     * Always returns {@code Integer.MAX_VALUE} because a
-     * {@code LinkedTransferQueue} is not capacity constrained.
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints)
+     * accept without blocking, or {@code Integer.MAX_VALUE} if it is
+     * not capacity constrained.
      *
-     * @return {@code Integer.MAX_VALUE} (as specified by
+     * @return the remaining capacity (as specified by
      *         {@link java.util.concurrent.BlockingQueue#remainingCapacity()
      *         BlockingQueue.remainingCapacity})
      */
     public int remainingCapacity() {
-        return Integer.MAX_VALUE;
+        if (capacity == Integer.MAX_VALUE)
+            return Integer.MAX_VALUE;
+        int c = count;
+        return (c < capacity) ? capacity - c : 0;
     }
 
     /**
@@ -1290,6 +1924,8 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     private void readObject(java.io.ObjectInputStream s)
         throws java.io.IOException, ClassNotFoundException {
         s.defaultReadObject();
+        dataCount = new LongAdder();
+        requestCount = new LongAdder();
         for (;;) {
             @SuppressWarnings("unchecked")
             E item = (E) s.readObject();
@@ -1306,6 +1942,10 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
     private static final long headOffset;
     private static final long tailOffset;
     private static final long sweepVotesOffset;
+    private static final long countOffset;
+    private static final long arenaOffset;
+    private static final long ARENA_BASE;
+    private static final int ARENA_SHIFT;
     static {
         try {
             UNSAFE = getUnsafe();
@@ -1316,6 +1956,16 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
                 (k.getDeclaredField("tail"));
             sweepVotesOffset = UNSAFE.objectFieldOffset
                 (k.getDeclaredField("sweepVotes"));
+            countOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("count"));
+            arenaOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("arena"));
+            Class<?> ak = Node[].class;
+            ARENA_BASE = UNSAFE.arrayBaseOffset(ak);
+            int scale = UNSAFE.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ARENA_SHIFT = 31 - Integer.numberOfLeadingZeros(scale);
         } catch (Exception e) {
             throw new Error(e);
         }
@@ -7,6 +7,7 @@
 package akka.dispatch.forkjoin;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A random number generator isolated to the current thread.  Like the
@@ -29,20 +30,47 @@ import java.util.Random;
  * <p>This class also provides additional commonly used bounded random
  * generation methods.
  *
+ * <p>Values are generated by the SplitMix64 algorithm, a 64-bit
+ * Weyl sequence passed through a mixing function, so each call costs
+ * a handful of arithmetic instructions; bounded values are obtained
+ * by multiplication and shift, dividing only on the rare rejection
+ * path. Workers of a {@link ForkJoinPool} keep their generator in a
+ * field of their {@link ForkJoinWorkerThread}, so {@link #current}
+ * avoids a {@code ThreadLocal} lookup on those threads. For
+ * reproducible results across parallel tasks, start from {@link
+ * #seeded} and hand each task its own {@link #split}.
+ *
  * @since 1.7
  * @author Doug Lea
  */
 public class ThreadLocalRandom extends Random {
-    // same constants as Random, but must be redeclared because private
-    private static final long multiplier = 0x5DEECE66DL;
-    private static final long addend = 0xBL;
-    private static final long mask = (1L << 48) - 1;
+    /*
+     * The generator follows java.util.SplittableRandom: the state is
+     * advanced by an odd gamma and the result mixed by a variant of
+     * MurmurHash3's finalizer. Generators created for threads all
+     * use the golden gamma, with seeds spread apart by a shared
+     * seeder; split() derives a fresh seed and gamma from the parent
+     * so that sibling sequences are statistically independent.
+     */
+
+    /** The golden ratio scaled to 64 bits, the default gamma */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Source of initial seeds for thread generators */
+    private static final AtomicLong seeder =
+        new AtomicLong(mix64(System.currentTimeMillis()) ^
+                       mix64(System.nanoTime()));
 
     /**
      * The random seed. We can't use super.seed.
      */
     private long rnd;
 
+    /**
+     * The odd increment of the Weyl sequence in rnd.
+     */
+    private final long gamma;
+
     /**
      * Initialization flag to permit calls to setSeed to succeed only
      * while executing the Random constructor.  We can't allow others
@@ -68,10 +96,20 @@ public class ThreadLocalRandom extends Random {
 
 
     /**
-     * Constructor called only by localRandom.initialValue.
+     * Constructor called only by localRandom.initialValue and
+     * ForkJoinWorkerThread.
      */
     ThreadLocalRandom() {
-        super();
+        this(mix64(seeder.getAndAdd(GOLDEN_GAMMA << 1)), GOLDEN_GAMMA);
+    }
+
+    /**
+     * Constructor used by seeded and split.
+     */
+    private ThreadLocalRandom(long seed, long gamma) {
+        super(0L);
+        this.rnd = seed;
+        this.gamma = gamma;
         initialized = true;
     }
 
@@ -81,9 +119,43 @@ public class ThreadLocalRandom extends Random {
      * @return the current thread's {@code ThreadLocalRandom}
      */
     public static ThreadLocalRandom current() {
+        Thread t = Thread.currentThread();
+        if (t instanceof ForkJoinWorkerThread) {
+            ForkJoinWorkerThread w = (ForkJoinWorkerThread)t;
+            ThreadLocalRandom r = w.random;
+            return (r != null) ? r : (w.random = new ThreadLocalRandom());
+        }
         return localRandom.get();
     }
 
+    /**
+     * Returns a new generator whose sequence is determined by the
+     * given seed. The generator is not bound to any thread; it and
+     * the generators {@link #split} from it must each be confined to
+     * one thread at a time.
+     *
+     * @param seed the initial seed
+     * @return a new generator
+     */
+    public static ThreadLocalRandom seeded(long seed) {
+        return new ThreadLocalRandom(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Returns a new generator, not bound to any thread, that shares
+     * no mutable state with this one. The values it produces are
+     * statistically independent of those of this generator, and are
+     * determined by the state of this generator when split, so a tree
+     * of splits made in a fixed order from a {@link #seeded}
+     * generator yields the same values on every run regardless of
+     * which threads consume them.
+     *
+     * @return a new generator
+     */
+    public ThreadLocalRandom split() {
+        return new ThreadLocalRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
     /**
      * Throws {@code UnsupportedOperationException}.  Setting seeds in
      * this generator is not supported.
@@ -93,12 +165,74 @@ public class ThreadLocalRandom extends Random {
     public void setSeed(long seed) {
         if (initialized)
             throw new UnsupportedOperationException();
-        rnd = (seed ^ multiplier) & mask;
+        rnd = seed;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /**
+     * Returns an odd gamma with enough bit transitions to make a
+     * good Weyl increment.
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    private long nextSeed() {
+        return rnd += gamma;
     }
 
     protected int next(int bits) {
-        rnd = (rnd * multiplier + addend) & mask;
-        return (int) (rnd >>> (48-bits));
+        return mix32(nextSeed()) >>> (32 - bits);
+    }
+
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns a pseudorandom, uniformly distributed value
+     * between 0 (inclusive) and the specified value (exclusive).
+     *
+     * @param n the bound on the random number to be returned.  Must be
+     *        positive.
+     * @return the next value
+     * @throws IllegalArgumentException if n is not positive
+     */
+    public int nextInt(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("n must be positive");
+        // Scale a 32-bit value into [0, n) by taking the high half of
+        // the product; reject the few low halves that would bias the
+        // result, computing the rejection threshold only when needed.
+        long m = (mix32(nextSeed()) & 0xffffffffL) * n;
+        if ((m & 0xffffffffL) < n) {
+            long t = (0x100000000L - n) % n;
+            while ((m & 0xffffffffL) < t)
+                m = (mix32(nextSeed()) & 0xffffffffL) * n;
+        }
+        return (int)(m >>> 32);
     }
 
     /**
@@ -129,21 +263,32 @@ public class ThreadLocalRandom extends Random {
     public long nextLong(long n) {
         if (n <= 0)
             throw new IllegalArgumentException("n must be positive");
-        // Divide n by two until small enough for nextInt. On each
-        // iteration (at most 31 of them but usually much less),
-        // randomly choose both whether to include high bit in result
-        // (offset) and whether to continue with the lower vs upper
-        // half (which makes a difference only if odd).
-        long offset = 0;
-        while (n >= Integer.MAX_VALUE) {
-            int bits = next(2);
-            long half = n >>> 1;
-            long nextn = ((bits & 2) == 0) ? half : n - half;
-            if ((bits & 1) == 0)
-                offset += n - nextn;
-            n = nextn;
+        if (n <= Integer.MAX_VALUE)
+            return nextInt((int)n);
+        // As in nextInt(int), but with the 128-bit product
+        long r = mix64(nextSeed());
+        long lo = r * n;
+        if (Long.compareUnsigned(lo, n) < 0) {
+            long t = Long.remainderUnsigned(-n, n);
+            while (Long.compareUnsigned(lo, t) < 0) {
+                r = mix64(nextSeed());
+                lo = r * n;
+            }
         }
-        return offset + nextInt((int) n);
+        return multiplyHighUnsigned(r, n);
+    }
+
+    /**
+     * Returns the high 64 bits of the unsigned 128-bit product of x
+     * and y.
+     */
+    private static long multiplyHighUnsigned(long x, long y) {
+        long x0 = x & 0xffffffffL, x1 = x >>> 32;
+        long y0 = y & 0xffffffffL, y1 = y >>> 32;
+        long w0 = x0 * y0;
+        long t = x1 * y0 + (w0 >>> 32);
+        long w1 = (t & 0xffffffffL) + x0 * y1;
+        return x1 * y1 + (t >>> 32) + (w1 >>> 32);
     }
 
     /**
@@ -9,19 +9,45 @@ import scala.PartialFunction;
 /**
  * A builder for {@link scala.PartialFunction}.
  *
+ * With more than a few case statements, the built partial function looks up
+ * the statements which can match an argument by the argument's runtime class,
+ * and only tries those, in the order they were added. The statement to apply
+ * is thereby resolved once per class of argument as long as the first
+ * statement matching the class has no guard, which keeps e.g. a supervisor's
+ * {@link DeciderBuilder decider} cheap when a flood of failures of the same
+ * type arrives.
+ *
  * @param <F> the input type, that this PartialFunction will be applied to
  * @param <T> the return type, that the results of the application will have
  *
  */
 abstract class AbstractPFBuilder<F, T> {
 
-  protected PartialFunction<F, T> statements = null;
+  private final ClassStatementList<F, T> statements = new ClassStatementList<F, T>();
+
+  /**
+   * Makes {@link #build()} return a partial function which counts how often
+   * each case statement matches, see {@link CaseStatistics}.
+   */
+  protected void enableProfiling() {
+    statements.enableProfiling();
+  }
 
   protected void addStatement(PartialFunction<F, T> statement) {
-    if (statements == null)
-      statements = statement;
-    else
-      statements = statements.orElse(statement);
+    statements.add(statement);
+  }
+
+  protected void addStatement(Class<?> type, boolean total, PartialFunction<F, T> statement) {
+    statements.add(type, total, statement);
+  }
+
+  /**
+   * Add a statement which matches exactly the arguments that compare equal
+   * to the given object. Consecutive such statements on strings, boxed
+   * primitives or enum constants of one type are looked up by hash.
+   */
+  protected void addEqualsStatement(Object object, PartialFunction<F, T> statement) {
+    statements.addEquals(object, statement);
   }
 
   /**
@@ -31,13 +57,8 @@ abstract class AbstractPFBuilder<F, T> {
    * @return  a PartialFunction for this builder.
    */
   public PartialFunction<F, T> build() {
-    PartialFunction<F, T> empty = CaseStatement.empty();
-    PartialFunction<F, T> statements = this.statements;
-
-    this.statements = null;
-    if (statements == null)
-      return empty;
-    else
-      return statements.orElse(empty);
+    PartialFunction<F, T> result = statements.build();
+    statements.clear();
+    return result;
   }
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.japi.pf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import scala.PartialFunction;
+
+/**
+ * The case statements added to a builder, each with a key telling which
+ * arguments it can match. A partial function is built from them by chaining
+ * them when there are only a few, and otherwise by handing them to an
+ * {@link Index}, which looks up the statements to try by their keys.
+ *
+ * @param <F> the input type of the statements
+ * @param <T> the return type of the statements
+ * @param <K> the type of the keys
+ */
+final class CaseStatementList<F, T, K> {
+
+  /**
+   * The number of case statements from which on {@link #build(Index)} indexes
+   * them instead of chaining them.
+   */
+  static final int INDEX_THRESHOLD = 4;
+
+  /**
+   * Creates a partial function trying the given statements in order, which
+   * may skip those whose keys tell that they cannot match an argument.
+   */
+  interface Index<F, T, K> {
+    PartialFunction<F, T> apply(PartialFunction<F, T>[] statements, List<K> keys);
+  }
+
+  private final ArrayList<PartialFunction<F, T>> statements = new ArrayList<PartialFunction<F, T>>();
+
+  private final ArrayList<K> keys = new ArrayList<K>();
+
+  void add(K key, PartialFunction<F, T> statement) {
+    statements.add(statement);
+    keys.add(key);
+  }
+
+  int size() {
+    return statements.size();
+  }
+
+  PartialFunction<F, T> statement(int i) {
+    return statements.get(i);
+  }
+
+  K key(int i) {
+    return keys.get(i);
+  }
+
+  /**
+   * Build a {@link scala.PartialFunction} from the statements, which chains
+   * them if there are fewer than {@link #INDEX_THRESHOLD}.
+   *
+   * @param index  creates the partial function otherwise
+   * @return       a PartialFunction for the statements
+   */
+  PartialFunction<F, T> build(Index<F, T, K> index) {
+    PartialFunction<F, T> empty = CaseStatement.empty();
+    int size = statements.size();
+
+    if (size == 0)
+      return empty;
+    else if (size < INDEX_THRESHOLD) {
+      PartialFunction<F, T> chain = statements.get(0);
+      for (int i = 1; i < size; i++)
+        chain = chain.orElse(statements.get(i));
+      return chain.orElse(empty);
+    } else
+      return index(index);
+  }
+
+  /**
+   * Build a {@link scala.PartialFunction} from the statements with the given
+   * index, however few they are.
+   *
+   * @param index  creates the partial function
+   * @return       a PartialFunction for the statements
+   */
+  @SuppressWarnings("unchecked")
+  PartialFunction<F, T> index(Index<F, T, K> index) {
+    return index.apply(statements.toArray(new PartialFunction[statements.size()]), keys);
+  }
+
+  void clear() {
+    statements.clear();
+    keys.clear();
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.japi.pf;
+
+import scala.PartialFunction;
+
+/**
+ * A snapshot of how often each case statement of a partial function built in
+ * profiling mode, see e.g. {@link ReceiveBuilder#profiled()}, has matched.
+ * <p>
+ * Example:
+ * </p>
+ * <pre>
+ * Receive receive = receiveBuilder().profiled().
+ *   match(String.class, s -&gt; ...).
+ *   match(Integer.class, i -&gt; ...).
+ *   build();
+ * ...
+ * log.info(CaseStatistics.of(receive.onMessage()).toString());
+ * </pre>
+ */
+public final class CaseStatistics {
+
+  private final String[] labels;
+  private final long[] hits;
+  private final long misses;
+  private final int[] order;
+
+  CaseStatistics(String[] labels, long[] hits, long misses, int[] order) {
+    this.labels = labels;
+    this.hits = hits;
+    this.misses = misses;
+    this.order = order;
+  }
+
+  /**
+   * Returns the statistics of a partial function built in profiling mode.
+   *
+   * @param partialFunction  a partial function built in profiling mode
+   * @return                 a snapshot of its statistics
+   * @throws IllegalArgumentException if the partial function was not built in profiling mode
+   */
+  public static CaseStatistics of(PartialFunction<?, ?> partialFunction) {
+    if (partialFunction instanceof ProfiledStatements)
+      return ((ProfiledStatements<?, ?>) partialFunction).statistics();
+    else
+      throw new IllegalArgumentException("partial function was not built in profiling mode: " + partialFunction);
+  }
+
+  /**
+   * @return the number of case statements
+   */
+  public int size() {
+    return hits.length;
+  }
+
+  /**
+   * @param i  the position of a case statement, in the order they were added
+   * @return   the type matched by the case statement, "equals" and the object
+   *           compared to by a matchEquals statement, or "any" or "unknown"
+   */
+  public String label(int i) {
+    return labels[i];
+  }
+
+  /**
+   * @param i  the position of a case statement, in the order they were added
+   * @return   the number of arguments the case statement was applied to
+   */
+  public long hits(int i) {
+    return hits[i];
+  }
+
+  /**
+   * @return the number of arguments no case statement matched
+   */
+  public long misses() {
+    return misses;
+  }
+
+  /**
+   * @param i  a position in the order the case statements are currently tried
+   * @return   the position, in the order they were added, of the case statement tried at that position
+   */
+  public int triedAt(int i) {
+    return order[i];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("CaseStatistics(");
+    for (int i = 0; i < hits.length; i++)
+      sb.append(i).append(": ").append(labels[i]).append(" = ").append(hits[i]).append(", ");
+    return sb.append("misses = ").append(misses).append(')').toString();
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.japi.pf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import scala.PartialFunction;
+
+/**
+ * The case statements of the builders which index them by the runtime class
+ * of the argument, {@link AbstractPFBuilder} and {@link ReceiveBuilder}, see
+ * {@link ClassIndexedStatements}. Unless profiling is enabled, runs of
+ * matchEquals statements on objects of one type are combined into one
+ * statement looking them up by hash, see {@link EqualsStatements}.
+ *
+ * @param <F> the input type of the statements
+ * @param <T> the return type of the statements
+ */
+final class ClassStatementList<F, T> {
+
+  private static final class Key {
+    /** The class an argument must be an instance of, or null for any argument. */
+    final Class<?> type;
+
+    /** Whether the statement matches every argument of its type, i.e. it has no guard. */
+    final boolean total;
+
+    /** Whether the statement is an unguarded matchEquals on equalsObject. */
+    final boolean equals;
+
+    final Object equalsObject;
+
+    Key(Class<?> type, boolean total, boolean equals, Object equalsObject) {
+      this.type = type;
+      this.total = total;
+      this.equals = equals;
+      this.equalsObject = equalsObject;
+    }
+  }
+
+  private final CaseStatementList<F, T, Key> statements = new CaseStatementList<F, T, Key>();
+
+  private boolean profiled = false;
+
+  /**
+   * Makes {@link #build()} return a partial function which counts how often
+   * each case statement matches, see {@link CaseStatistics}.
+   */
+  void enableProfiling() {
+    profiled = true;
+  }
+
+  void add(PartialFunction<F, T> statement) {
+    add(null, false, statement);
+  }
+
+  void add(Class<?> type, boolean total, PartialFunction<F, T> statement) {
+    statements.add(new Key(type, total, false, null), statement);
+  }
+
+  /**
+   * Add a statement which matches exactly the arguments that compare equal
+   * to the given object. Consecutive such statements on strings, boxed
+   * primitives or enum constants of one type are looked up by hash.
+   */
+  void addEquals(Object object, PartialFunction<F, T> statement) {
+    statements.add(new Key(CaseStatement.equalsType(object), false, true, object), statement);
+  }
+
+  /**
+   * Returns the statements with every run of matchEquals statements on
+   * objects of one equalsType combined into one statement, which looks them
+   * up by hash and is indexed by the class of their objects.
+   */
+  private CaseStatementList<F, T, Key> groupEquals() {
+    CaseStatementList<F, T, Key> grouped = new CaseStatementList<F, T, Key>();
+    Class<?> runType = null;
+    ArrayList<Object> runObjects = new ArrayList<Object>();
+    ArrayList<PartialFunction<F, T>> runStatements = new ArrayList<PartialFunction<F, T>>();
+    for (int i = 0; i <= statements.size(); i++) {
+      Key key = i < statements.size() ? statements.key(i) : null;
+      Class<?> type = key != null && key.equals ? key.type : null;
+      if (runType != null && type != runType) {
+        grouped.add(new Key(runType, false, false, null), EqualsStatements.group(runType, runObjects, runStatements));
+        runObjects.clear();
+        runStatements.clear();
+      }
+      runType = type;
+      if (type != null) {
+        runObjects.add(key.equalsObject);
+        runStatements.add(statements.statement(i));
+      } else if (key != null)
+        grouped.add(key, statements.statement(i));
+    }
+    return grouped;
+  }
+
+  PartialFunction<F, T> build() {
+    CaseStatementList.Index<F, T, Key> index = new CaseStatementList.Index<F, T, Key>() {
+      @Override
+      public PartialFunction<F, T> apply(PartialFunction<F, T>[] cases, List<Key> keys) {
+        Class<?>[] types = new Class<?>[keys.size()];
+        boolean[] total = new boolean[keys.size()];
+        String[] labels = new String[keys.size()];
+        for (int i = 0; i < types.length; i++) {
+          Key key = keys.get(i);
+          types[i] = key.type;
+          total[i] = key.total;
+          if (key.equals)
+            labels[i] = "equals " + key.equalsObject;
+        }
+        if (profiled)
+          return new ProfiledStatements<F, T>(cases, types, total, labels);
+        else
+          return new ClassIndexedStatements<F, T>(cases, types, total);
+      }
+    };
+    // when profiling, every matchEquals statement stays a case of its own so that its hits are counted
+    return profiled ? statements.index(index) : groupEquals().build(index);
+  }
+
+  void clear() {
+    statements.clear();
+  }
+}
@@ -28,6 +28,11 @@ import static akka.actor.SupervisorStrategy.Directive;
  * }
  * </pre>
  *
+ * The built decider resolves the case to apply once per exception class, as
+ * long as the first case matching the class has no predicate, and then only
+ * runs that case's action for further failures of the class. Building the
+ * decider again starts with an empty resolution cache.
+ *
  */
 public class DeciderBuilder {
   private DeciderBuilder() {
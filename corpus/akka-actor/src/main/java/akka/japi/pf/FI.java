@@ -168,6 +168,93 @@ public final class FI {
     public void apply() throws Exception;
   }
 
+  /**
+   * Functional interface for an application to a primitive {@code int}, which
+   * avoids unboxing in the application.
+   *
+   * @param <R> the return type, that the results of the application will have
+   */
+  public static interface ApplyInt<R> {
+    /**
+     * The application to perform.
+     *
+     * @param i  the value that the application is performed on
+     * @return  the result of the application
+     */
+    public R apply(int i) throws Exception;
+  }
+
+  /**
+   * Functional interface for an application to a primitive {@code int}, which
+   * avoids unboxing in the application.
+   */
+  public static interface UnitApplyInt {
+    /**
+     * The application to perform.
+     *
+     * @param i  the value that the application is performed on
+     */
+    public void apply(int i) throws Exception;
+  }
+
+  /**
+   * Functional interface for an application to a primitive {@code long}, which
+   * avoids unboxing in the application.
+   *
+   * @param <R> the return type, that the results of the application will have
+   */
+  public static interface ApplyLong<R> {
+    /**
+     * The application to perform.
+     *
+     * @param i  the value that the application is performed on
+     * @return  the result of the application
+     */
+    public R apply(long i) throws Exception;
+  }
+
+  /**
+   * Functional interface for an application to a primitive {@code long}, which
+   * avoids unboxing in the application.
+   */
+  public static interface UnitApplyLong {
+    /**
+     * The application to perform.
+     *
+     * @param i  the value that the application is performed on
+     */
+    public void apply(long i) throws Exception;
+  }
+
+  /**
+   * Functional interface for an application to a primitive {@code double}, which
+   * avoids unboxing in the application.
+   *
+   * @param <R> the return type, that the results of the application will have
+   */
+  public static interface ApplyDouble<R> {
+    /**
+     * The application to perform.
+     *
+     * @param i  the value that the application is performed on
+     * @return  the result of the application
+     */
+    public R apply(double i) throws Exception;
+  }
+
+  /**
+   * Functional interface for an application to a primitive {@code double}, which
+   * avoids unboxing in the application.
+   */
+  public static interface UnitApplyDouble {
+    /**
+     * The application to perform.
+     *
+     * @param i  the value that the application is performed on
+     */
+    public void apply(double i) throws Exception;
+  }
+
   /**
    * Package scoped functional interface for a predicate. Used internally to match against arbitrary types.
    *
@@ -11,6 +11,11 @@ import java.util.List;
 /**
  * Builder used to create a partial function for {@link akka.actor.FSM#whenUnhandled}.
  *
+ * With more than a few case statements, the built partial function looks up
+ * the statements which can match an event by the runtime class of the event
+ * and then of the state data, and only tries those, in the order they were
+ * added.
+ *
  * @param <S> the state type
  * @param <D> the data type
  *
@@ -18,8 +23,40 @@ import java.util.List;
 @SuppressWarnings("rawtypes")
 public class FSMStateFunctionBuilder<S, D> {
 
-  private PFBuilder<FSM.Event<D>, FSM.State<S, D>> builder =
-    new PFBuilder<FSM.Event<D>, FSM.State<S, D>>();
+  private static final class EventKey {
+    /** The classes one of which the event must be an instance of, or null if it may match any event. */
+    final Class<?>[] eventTypes;
+
+    /** The class the state data must be an instance of, or null if it may match any state data. */
+    final Class<?> dataType;
+
+    EventKey(Class<?>[] eventTypes, Class<?> dataType) {
+      this.eventTypes = eventTypes;
+      this.dataType = dataType;
+    }
+  }
+
+  private final CaseStatementList<FSM.Event<D>, FSM.State<S, D>, EventKey> statements =
+    new CaseStatementList<FSM.Event<D>, FSM.State<S, D>, EventKey>();
+
+  private void addStatement(final Class<?>[] eventTypes,
+                            final Class<?> dataType,
+                            final FI.TypedPredicate<FSM.Event> predicate,
+                            final FI.Apply<FSM.Event, FSM.State<S, D>> apply) {
+    statements.add(new EventKey(eventTypes, dataType),
+      new TypedCaseStatement<FSM.Event<D>, FSM.Event, FSM.State<S, D>>(FSM.Event.class, predicate, apply));
+  }
+
+  /**
+   * The class an argument must be an instance of to match the given type, or
+   * to compare equal to the given object, if known, otherwise null.
+   */
+  private static Class<?> matchedType(Object objectOrType) {
+    if (objectOrType instanceof Class)
+      return (Class<?>) objectOrType;
+    else
+      return CaseStatement.equalsType(objectOrType);
+  }
 
   /**
    * An erased processing of the event matcher. The compile time checks are enforced
@@ -42,7 +79,9 @@ public class FSMStateFunctionBuilder<S, D> {
                                                     final Object dataOrType,
                                                     final FI.TypedPredicate2 predicate,
                                                     final FI.Apply2 apply) {
-    builder.match(FSM.Event.class,
+    Class<?> eventType = matchedType(eventOrType);
+    addStatement(eventType == null ? null : new Class<?>[] { eventType },
+      matchedType(dataOrType),
       new FI.TypedPredicate<FSM.Event>() {
         @Override
         public boolean defined(FSM.Event e) {
@@ -171,7 +210,15 @@ public class FSMStateFunctionBuilder<S, D> {
   public <Q> FSMStateFunctionBuilder<S, D> event(final List<Object> eventMatches,
                                                  final Class<Q> dataType,
                                                  final FI.Apply2<Object, Q, FSM.State<S, D>> apply) {
-    builder.match(FSM.Event.class,
+    Class<?>[] types = new Class<?>[eventMatches.size()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = matchedType(eventMatches.get(i));
+      if (types[i] == null) {
+        types = null;
+        break;
+      }
+    }
+    addStatement(types, dataType,
       new FI.TypedPredicate<FSM.Event>() {
         @Override
         public boolean defined(FSM.Event e) {
@@ -262,6 +309,21 @@ public class FSMStateFunctionBuilder<S, D> {
    * @return  a PartialFunction for this builder.
    */
   public PartialFunction<FSM.Event<D>, FSM.State<S, D>> build() {
-    return builder.build();
+    PartialFunction<FSM.Event<D>, FSM.State<S, D>> result = statements.build(
+      new CaseStatementList.Index<FSM.Event<D>, FSM.State<S, D>, EventKey>() {
+        @Override
+        public PartialFunction<FSM.Event<D>, FSM.State<S, D>> apply(
+            PartialFunction<FSM.Event<D>, FSM.State<S, D>>[] cases, List<EventKey> keys) {
+          Class<?>[][] eventTypes = new Class<?>[keys.size()][];
+          Class<?>[] dataTypes = new Class<?>[keys.size()];
+          for (int i = 0; i < dataTypes.length; i++) {
+            eventTypes[i] = keys.get(i).eventTypes;
+            dataTypes[i] = keys.get(i).dataType;
+          }
+          return new FSMEventIndexedStatements<D, FSM.State<S, D>>(cases, eventTypes, dataTypes);
+        }
+      });
+    statements.clear();
+    return result;
   }
 }
@@ -7,17 +7,41 @@ package akka.japi.pf;
 import scala.PartialFunction;
 import scala.runtime.BoxedUnit;
 import scala.Tuple2;
+import java.util.List;
 
 /**
  * Builder used to create a partial function for {@link akka.actor.FSM#onTransition}.
  *
+ * With more than a few case statements, the built partial function finds the
+ * first statement matching a transition by looking up its from and to states
+ * in hash maps, falling back to the statements matching any from or to state,
+ * instead of trying the statements one by one. States are thus compared with
+ * their {@code equals} and {@code hashCode} methods.
+ *
  * @param <S> the state type
  *
  */
+@SuppressWarnings("rawtypes")
 public class FSMTransitionHandlerBuilder<S> {
 
-  private final UnitPFBuilder<Tuple2<S, S>> builder =
-    new UnitPFBuilder<Tuple2<S, S>>();
+  // keyed by the from and to states of the statements, null meaning any
+  private final CaseStatementList<Tuple2<S, S>, BoxedUnit, Tuple2<Object, Object>> statements =
+    new CaseStatementList<Tuple2<S, S>, BoxedUnit, Tuple2<Object, Object>>();
+
+  private void addStatement(final S fromState,
+                            final S toState,
+                            final FI.UnitApply<Tuple2> apply) {
+    statements.add(new Tuple2<Object, Object>(fromState, toState),
+      new TypedUnitCaseStatement<Tuple2<S, S>, Tuple2>(Tuple2.class,
+      new FI.TypedPredicate<Tuple2>() {
+        @Override
+        public boolean defined(Tuple2 t) {
+          return (fromState == null || fromState.equals(t._1()))
+            && (toState == null || toState.equals(t._2()));
+        }
+      },
+      apply));
+  }
 
   /**
    * Add a case statement that matches on a from state and a to state.
@@ -30,14 +54,7 @@ public class FSMTransitionHandlerBuilder<S> {
   public FSMTransitionHandlerBuilder<S> state(final S fromState,
                                               final S toState,
                                               final FI.UnitApplyVoid apply) {
-    builder.match(Tuple2.class,
-      new FI.TypedPredicate<Tuple2>() {
-        @Override
-        public boolean defined(Tuple2 t) {
-          return (fromState == null || fromState.equals(t._1()))
-            && (toState == null || toState.equals(t._2()));
-        }
-      },
+    addStatement(fromState, toState,
       new FI.UnitApply<Tuple2>() {
         @Override
         public void apply(Tuple2 t) throws Exception {
@@ -59,14 +76,7 @@ public class FSMTransitionHandlerBuilder<S> {
   public FSMTransitionHandlerBuilder<S> state(final S fromState,
                                               final S toState,
                                               final FI.UnitApply2<S, S> apply) {
-    builder.match(Tuple2.class,
-      new FI.TypedPredicate<Tuple2>() {
-        @Override
-        public boolean defined(Tuple2 t) {
-          return (fromState == null || fromState.equals(t._1()))
-            && (toState == null || toState.equals(t._2()));
-        }
-      },
+    addStatement(fromState, toState,
       new FI.UnitApply<Tuple2>() {
         @Override
         public void apply(Tuple2 t) throws Exception {
@@ -88,6 +98,21 @@ public class FSMTransitionHandlerBuilder<S> {
    * @return  a PartialFunction for this builder.
    */
   public PartialFunction<Tuple2<S, S>, BoxedUnit> build() {
-    return builder.build();
+    PartialFunction<Tuple2<S, S>, BoxedUnit> result = statements.build(
+      new CaseStatementList.Index<Tuple2<S, S>, BoxedUnit, Tuple2<Object, Object>>() {
+        @Override
+        public PartialFunction<Tuple2<S, S>, BoxedUnit> apply(
+            PartialFunction<Tuple2<S, S>, BoxedUnit>[] cases, List<Tuple2<Object, Object>> keys) {
+          Object[] fromStates = new Object[keys.size()];
+          Object[] toStates = new Object[keys.size()];
+          for (int i = 0; i < fromStates.length; i++) {
+            fromStates[i] = keys.get(i)._1();
+            toStates[i] = keys.get(i)._2();
+          }
+          return new TransitionStatements<S>(cases, fromStates, toStates);
+        }
+      });
+    statements.clear();
+    return result;
   }
 }
@@ -4,6 +4,8 @@
 
 package akka.japi.pf;
 
+import scala.runtime.BoxesRunTime;
+
 /**
  * A builder for {@link scala.PartialFunction}.
  *
@@ -19,6 +21,20 @@ public final class PFBuilder<I, R> extends AbstractPFBuilder<I, R> {
   public PFBuilder() {
   }
 
+  /**
+   * Makes {@link #build()} return a partial function which counts how often
+   * each case statement matches, see {@link CaseStatistics}. Consecutive case
+   * statements matching distinct final classes without a predicate are then
+   * tried in the order of how often they matched, which is adapted every
+   * so many applications.
+   *
+   * @return this builder
+   */
+  public PFBuilder<I, R> profiled() {
+    enableProfiling();
+    return this;
+  }
+
   /**
    * Add a new case statement to this builder.
    *
@@ -43,14 +59,7 @@ public final class PFBuilder<I, R> extends AbstractPFBuilder<I, R> {
   @SuppressWarnings("unchecked")
   public PFBuilder<I, R> matchUnchecked(final Class<?> type, FI.Apply<?, R> apply) {
 
-    FI.Predicate predicate = new FI.Predicate() {
-      @Override
-      public boolean defined(Object o) {
-        return type.isInstance(o);
-      }
-    };
-
-    addStatement(new CaseStatement<I, Object, R>(predicate, (FI.Apply<Object, R>) apply));
+    addStatement(type, true, new TypedCaseStatement<I, Object, R>(type, null, (FI.Apply<Object, R>) apply));
     return this;
   }
 
@@ -83,16 +92,58 @@ public final class PFBuilder<I, R> extends AbstractPFBuilder<I, R> {
   public PFBuilder<I, R> matchUnchecked(final Class<?> type,
                                    final FI.TypedPredicate<?> predicate,
                                    final FI.Apply<?, R> apply) {
-    FI.Predicate fiPredicate = new FI.Predicate() {
+    addStatement(type, false, new TypedCaseStatement<I, Object, R>(type, (FI.TypedPredicate<Object>) predicate, (FI.Apply<Object, R>) apply));
+    return this;
+  }
+
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Integer}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply an action to apply to the unboxed argument if it is a {@code Integer}
+   * @return a builder with the case statement added
+   */
+  public PFBuilder<I, R> matchInt(final FI.ApplyInt<R> apply) {
+    addStatement(Integer.class, true, new TypedCaseStatement<I, Object, R>(Integer.class, null, new FI.Apply<Object, R>() {
+      @Override
+      public R apply(Object o) throws Exception {
+        return apply.apply(BoxesRunTime.unboxToInt(o));
+      }
+    }));
+    return this;
+  }
+
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Long}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply an action to apply to the unboxed argument if it is a {@code Long}
+   * @return a builder with the case statement added
+   */
+  public PFBuilder<I, R> matchLong(final FI.ApplyLong<R> apply) {
+    addStatement(Long.class, true, new TypedCaseStatement<I, Object, R>(Long.class, null, new FI.Apply<Object, R>() {
+      @Override
+      public R apply(Object o) throws Exception {
+        return apply.apply(BoxesRunTime.unboxToLong(o));
+      }
+    }));
+    return this;
+  }
+
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Double}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply an action to apply to the unboxed argument if it is a {@code Double}
+   * @return a builder with the case statement added
+   */
+  public PFBuilder<I, R> matchDouble(final FI.ApplyDouble<R> apply) {
+    addStatement(Double.class, true, new TypedCaseStatement<I, Object, R>(Double.class, null, new FI.Apply<Object, R>() {
       @Override
-      public boolean defined(Object o) {
-        if (!type.isInstance(o))
-          return false;
-        else
-          return ((FI.TypedPredicate<Object>) predicate).defined(o);
+      public R apply(Object o) throws Exception {
+        return apply.apply(BoxesRunTime.unboxToDouble(o));
       }
-    };
-    addStatement(new CaseStatement<I, Object, R>(fiPredicate, (FI.Apply<Object, R>) apply));
+    }));
     return this;
   }
 
@@ -105,7 +156,7 @@ public final class PFBuilder<I, R> extends AbstractPFBuilder<I, R> {
    */
   public <P> PFBuilder<I, R> matchEquals(final P object,
                                          final FI.Apply<P, R> apply) {
-    addStatement(new CaseStatement<I, P, R>(
+    addEqualsStatement(object, new CaseStatement<I, P, R>(
       new FI.Predicate() {
         @Override
         public boolean defined(Object o) {
@@ -122,7 +173,7 @@ public final class PFBuilder<I, R> extends AbstractPFBuilder<I, R> {
    * @return a builder with the case statement added
    */
   public PFBuilder<I, R> matchAny(final FI.Apply<I, R> apply) {
-    addStatement(new CaseStatement<I, I, R>(
+    addStatement(null, true, new CaseStatement<I, I, R>(
       new FI.Predicate() {
         @Override
         public boolean defined(Object o) {
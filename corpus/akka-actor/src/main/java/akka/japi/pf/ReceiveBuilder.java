@@ -6,6 +6,7 @@ package akka.japi.pf;
 
 import scala.PartialFunction;
 import scala.runtime.BoxedUnit;
+import scala.runtime.BoxesRunTime;
 import akka.actor.AbstractActor;
 import akka.actor.AbstractActor.Receive;
 
@@ -35,16 +36,24 @@ import akka.actor.AbstractActor.Receive;
  * }
  * </pre>
  *
+ * With more than a few case statements, the built partial function looks up
+ * the cases which can match a message by the message's runtime class, and
+ * only tries those, in the order they were added.
  */
 public class ReceiveBuilder {
 
-  private PartialFunction<Object, BoxedUnit> statements = null;
+  private final ClassStatementList<Object, BoxedUnit> statements = new ClassStatementList<Object, BoxedUnit>();
 
   protected void addStatement(PartialFunction<Object, BoxedUnit> statement) {
-    if (statements == null)
-      statements = statement;
-    else
-      statements = statements.orElse(statement);
+    statements.add(statement);
+  }
+
+  private void addStatement(Class<?> type, boolean total, PartialFunction<Object, BoxedUnit> statement) {
+    statements.add(type, total, statement);
+  }
+
+  private void addEqualsStatement(Object object, PartialFunction<Object, BoxedUnit> statement) {
+    statements.addEquals(object, statement);
   }
 
   /**
@@ -54,12 +63,21 @@ public class ReceiveBuilder {
    * @return a PartialFunction for this builder.
    */
   public Receive build() {
-    PartialFunction<Object, BoxedUnit> empty = CaseStatement.empty();
+    return new Receive(statements.build());
+  }
 
-    if (statements == null)
-      return new Receive(empty);
-    else
-      return new Receive(statements.orElse(empty)); // FIXME why no new Receive(statements)?
+  /**
+   * Makes {@link #build()} return a partial function which counts how often
+   * each case statement matches, see {@link CaseStatistics}. Consecutive case
+   * statements matching distinct final classes without a predicate are then
+   * tried in the order of how often they matched, which is adapted every
+   * so many applications.
+   *
+   * @return this builder
+   */
+  public ReceiveBuilder profiled() {
+    statements.enableProfiling();
+    return this;
   }
 
   /**
@@ -100,14 +118,7 @@ public class ReceiveBuilder {
   @SuppressWarnings("unchecked")
   public ReceiveBuilder matchUnchecked(final Class<?> type, final FI.UnitApply<?> apply) {
 
-    FI.Predicate predicate = new FI.Predicate() {
-      @Override
-      public boolean defined(Object o) {
-        return type.isInstance(o);
-      }
-    };
-
-    addStatement(new UnitCaseStatement<Object, Object>(predicate, (FI.UnitApply<Object>) apply));
+    addStatement(type, true, new TypedUnitCaseStatement<Object, Object>(type, null, (FI.UnitApply<Object>) apply));
 
     return this;
   }
@@ -149,18 +160,62 @@ public class ReceiveBuilder {
     @SuppressWarnings("unchecked")
     public <P> ReceiveBuilder matchUnchecked(final Class<?> type, final FI.TypedPredicate<?> predicate,
         final FI.UnitApply<P> apply) {
-      FI.Predicate fiPredicate = new FI.Predicate() {
+    addStatement(type, false, new TypedUnitCaseStatement<Object, Object>(type, (FI.TypedPredicate<Object>) predicate, (FI.UnitApply<Object>) apply));
+
+    return this;
+  }
+
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Integer}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply
+   *          an action to apply to the unboxed argument if it is a {@code Integer}
+   * @return a builder with the case statement added
+   */
+  public ReceiveBuilder matchInt(final FI.UnitApplyInt apply) {
+    addStatement(Integer.class, true, new TypedUnitCaseStatement<Object, Object>(Integer.class, null, new FI.UnitApply<Object>() {
       @Override
-      public boolean defined(Object o) {
-        if (!type.isInstance(o))
-          return false;
-        else
-          return ((FI.TypedPredicate<Object>) predicate).defined(o);
+      public void apply(Object o) throws Exception {
+        apply.apply(BoxesRunTime.unboxToInt(o));
       }
-    };
+    }));
+    return this;
+  }
 
-    addStatement(new UnitCaseStatement<Object, Object>(fiPredicate, (FI.UnitApply<Object>) apply));
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Long}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply
+   *          an action to apply to the unboxed argument if it is a {@code Long}
+   * @return a builder with the case statement added
+   */
+  public ReceiveBuilder matchLong(final FI.UnitApplyLong apply) {
+    addStatement(Long.class, true, new TypedUnitCaseStatement<Object, Object>(Long.class, null, new FI.UnitApply<Object>() {
+      @Override
+      public void apply(Object o) throws Exception {
+        apply.apply(BoxesRunTime.unboxToLong(o));
+      }
+    }));
+    return this;
+  }
 
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Double}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply
+   *          an action to apply to the unboxed argument if it is a {@code Double}
+   * @return a builder with the case statement added
+   */
+  public ReceiveBuilder matchDouble(final FI.UnitApplyDouble apply) {
+    addStatement(Double.class, true, new TypedUnitCaseStatement<Object, Object>(Double.class, null, new FI.UnitApply<Object>() {
+      @Override
+      public void apply(Object o) throws Exception {
+        apply.apply(BoxesRunTime.unboxToDouble(o));
+      }
+    }));
     return this;
   }
 
@@ -174,7 +229,7 @@ public class ReceiveBuilder {
    * @return a builder with the case statement added
    */
   public <P> ReceiveBuilder matchEquals(final P object, final FI.UnitApply<P> apply) {
-    addStatement(new UnitCaseStatement<Object, P>(new FI.Predicate() {
+    addEqualsStatement(object, new UnitCaseStatement<Object, P>(new FI.Predicate() {
       @Override
       public boolean defined(Object o) {
         return object.equals(o);
@@ -197,7 +252,7 @@ public class ReceiveBuilder {
    */
   public <P> ReceiveBuilder matchEquals(final P object, final FI.TypedPredicate<P> predicate,
       final FI.UnitApply<P> apply) {
-    addStatement(new UnitCaseStatement<Object, P>(new FI.Predicate() {
+    addStatement(CaseStatement.equalsType(object), false, new UnitCaseStatement<Object, P>(new FI.Predicate() {
       @Override
       public boolean defined(Object o) {
         if (!object.equals(o))
@@ -220,7 +275,7 @@ public class ReceiveBuilder {
    * @return a builder with the case statement added
    */
   public ReceiveBuilder matchAny(final FI.UnitApply<Object> apply) {
-    addStatement(new UnitCaseStatement<Object, Object>(new FI.Predicate() {
+    addStatement(null, true, new UnitCaseStatement<Object, Object>(new FI.Predicate() {
       @Override
       public boolean defined(Object o) {
         return true;
@@ -5,6 +5,7 @@
 package akka.japi.pf;
 
 import scala.runtime.BoxedUnit;
+import scala.runtime.BoxesRunTime;
 
 /**
  * A builder for {@link scala.PartialFunction}.
@@ -22,6 +23,20 @@ public final class UnitPFBuilder<I> extends AbstractPFBuilder<I, BoxedUnit> {
   public UnitPFBuilder() {
   }
 
+  /**
+   * Makes {@link #build()} return a partial function which counts how often
+   * each case statement matches, see {@link CaseStatistics}. Consecutive case
+   * statements matching distinct final classes without a predicate are then
+   * tried in the order of how often they matched, which is adapted every
+   * so many applications.
+   *
+   * @return this builder
+   */
+  public UnitPFBuilder<I> profiled() {
+    enableProfiling();
+    return this;
+  }
+
   /**
    * Add a new case statement to this builder.
    *
@@ -49,14 +64,7 @@ public final class UnitPFBuilder<I> extends AbstractPFBuilder<I, BoxedUnit> {
   @SuppressWarnings("unchecked")
   public UnitPFBuilder<I> matchUnchecked(final Class<?> type, final FI.UnitApply<?> apply) {
 
-    FI.Predicate predicate = new FI.Predicate() {
-      @Override
-      public boolean defined(Object o) {
-        return type.isInstance(o);
-      }
-    };
-
-    addStatement(new UnitCaseStatement<I, Object>(predicate, (FI.UnitApply<Object>) apply));
+    addStatement(type, true, new TypedUnitCaseStatement<I, Object>(type, null, (FI.UnitApply<Object>) apply));
 
     return this;
   }
@@ -90,19 +98,59 @@ public final class UnitPFBuilder<I> extends AbstractPFBuilder<I, BoxedUnit> {
   public UnitPFBuilder<I> matchUnchecked(final Class<?> type,
                                     final FI.TypedPredicate<?> predicate,
                                     final FI.UnitApply<?> apply) {
-    FI.Predicate fiPredicate = new FI.Predicate() {
+    addStatement(type, false, new TypedUnitCaseStatement<I, Object>(type, (FI.TypedPredicate<Object>) predicate, (FI.UnitApply<Object>) apply));
+
+    return this;
+  }
+
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Integer}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply an action to apply to the unboxed argument if it is a {@code Integer}
+   * @return a builder with the case statement added
+   */
+  public UnitPFBuilder<I> matchInt(final FI.UnitApplyInt apply) {
+    addStatement(Integer.class, true, new TypedUnitCaseStatement<I, Object>(Integer.class, null, new FI.UnitApply<Object>() {
       @Override
-      public boolean defined(Object o) {
-        if (!type.isInstance(o))
-          return false;
-        else {
-          return ((FI.TypedPredicate<Object>) predicate).defined(o);
-        }
+      public void apply(Object o) throws Exception {
+        apply.apply(BoxesRunTime.unboxToInt(o));
       }
-    };
+    }));
+    return this;
+  }
 
-    addStatement(new UnitCaseStatement<I, Object>(fiPredicate, (FI.UnitApply<Object>) apply));
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Long}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply an action to apply to the unboxed argument if it is a {@code Long}
+   * @return a builder with the case statement added
+   */
+  public UnitPFBuilder<I> matchLong(final FI.UnitApplyLong apply) {
+    addStatement(Long.class, true, new TypedUnitCaseStatement<I, Object>(Long.class, null, new FI.UnitApply<Object>() {
+      @Override
+      public void apply(Object o) throws Exception {
+        apply.apply(BoxesRunTime.unboxToLong(o));
+      }
+    }));
+    return this;
+  }
 
+  /**
+   * Add a new case statement to this builder, that matches {@link java.lang.Double}
+   * arguments and passes them to the action unboxed.
+   *
+   * @param apply an action to apply to the unboxed argument if it is a {@code Double}
+   * @return a builder with the case statement added
+   */
+  public UnitPFBuilder<I> matchDouble(final FI.UnitApplyDouble apply) {
+    addStatement(Double.class, true, new TypedUnitCaseStatement<I, Object>(Double.class, null, new FI.UnitApply<Object>() {
+      @Override
+      public void apply(Object o) throws Exception {
+        apply.apply(BoxesRunTime.unboxToDouble(o));
+      }
+    }));
     return this;
   }
 
@@ -115,7 +163,7 @@ public final class UnitPFBuilder<I> extends AbstractPFBuilder<I, BoxedUnit> {
    */
   public <P> UnitPFBuilder<I> matchEquals(final P object,
                                           final FI.UnitApply<P> apply) {
-    addStatement(new UnitCaseStatement<I, P>(
+    addEqualsStatement(object, new UnitCaseStatement<I, P>(
       new FI.Predicate() {
         @Override
         public boolean defined(Object o) {
@@ -136,7 +184,7 @@ public final class UnitPFBuilder<I> extends AbstractPFBuilder<I, BoxedUnit> {
   public <P> UnitPFBuilder<I> matchEquals(final P object,
                                           final FI.TypedPredicate<P> predicate,
                                           final FI.UnitApply<P> apply) {
-    addStatement(new UnitCaseStatement<I, P>(
+    addStatement(CaseStatement.equalsType(object), false, new UnitCaseStatement<I, P>(
       new FI.Predicate() {
         @Override
         public boolean defined(Object o) {
@@ -159,7 +207,7 @@ public final class UnitPFBuilder<I> extends AbstractPFBuilder<I, BoxedUnit> {
    * @return a builder with the case statement added
    */
   public UnitPFBuilder<I> matchAny(final FI.UnitApply<Object> apply) {
-    addStatement(new UnitCaseStatement<I, Object>(
+    addStatement(null, true, new UnitCaseStatement<I, Object>(
       new FI.Predicate() {
         @Override
         public boolean defined(Object o) {
@@ -780,6 +780,12 @@ private[akka] class ActorSystemImpl(
         override def reportFailure(t: Throwable): Unit = dispatcher reportFailure t
       })
 
+  /**
+   * INTERNAL API: the timeouts of the asks of this actor system, see [[akka.pattern.PromiseActorRef]]
+   */
+  private[akka] lazy val askTimeouts: akka.pattern.AskTimeouts =
+    new akka.pattern.AskTimeouts(scheduler, internalCallingThreadExecutionContext)
+
   private[this] final val terminationCallbacks = new TerminationCallbacks(provider.terminationFuture)(dispatcher)
 
   override def whenTerminated: Future[Terminated] = terminationCallbacks.terminationFuture
@@ -947,11 +953,12 @@ private[akka] class ActorSystemImpl(
               case _ ⇒ ""
             }) +
             " " + (cell.childrenRefs match {
-              case ChildrenContainer.TerminatingChildrenContainer(_, toDie, reason) ⇒
-                "Terminating(" + reason + ")" +
-                  (toDie.toSeq.sorted mkString ("\n" + indent + "   |    toDie: ", "\n" + indent + "   |           ", ""))
+              case t: ChildrenContainer.TerminatingChildren ⇒
+                "Terminating(" + t.reason + ")" +
+                  (t.toDie.toSeq.sorted mkString ("\n" + indent + "   |    toDie: ", "\n" + indent + "   |           ", ""))
               case x @ (ChildrenContainer.TerminatedChildrenContainer | ChildrenContainer.EmptyChildrenContainer) ⇒ x.toString
               case n: ChildrenContainer.NormalChildrenContainer ⇒ n.c.size + " children"
+              case n: ChildrenContainer.ConcurrentChildrenContainer ⇒ n.c.size + " children"
               case x ⇒ Logging.simpleName(x)
             }) +
             (if (cell.childrenRefs.children.isEmpty) "" else "\n") +
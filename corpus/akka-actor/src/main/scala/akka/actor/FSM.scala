@@ -10,6 +10,7 @@ import akka.routing.{ Deafen, Listen, Listeners }
 import scala.concurrent.duration.FiniteDuration
 import scala.concurrent.duration._
 import akka.annotation.InternalApi
+import akka.util.ConstantFun
 
 object FSM {
 
@@ -605,7 +606,7 @@ trait FSM[S, D] extends Actor with Listeners with ActorLogging {
   private var transitionEvent: List[TransitionHandler] = Nil
   private def handleTransition(prev: S, next: S) {
     val tuple = (prev, next)
-    for (te ← transitionEvent) { if (te.isDefinedAt(tuple)) te(tuple) }
+    for (te ← transitionEvent) te.applyOrElse(tuple, ConstantFun.scalaAnyToUnit)
   }
 
   /*
@@ -661,12 +662,8 @@ trait FSM[S, D] extends Actor with Listeners with ActorLogging {
 
   private[akka] def processEvent(event: Event, source: AnyRef): Unit = {
     val stateFunc = stateFunctions(currentState.stateName)
-    val nextState = if (stateFunc isDefinedAt event) {
-      stateFunc(event)
-    } else {
-      // handleEventDefault ensures that this is always defined
-      handleEvent(event)
-    }
+    // handleEventDefault ensures that handleEvent is always defined
+    val nextState = stateFunc.applyOrElse(event, handleEvent)
     applyState(nextState)
   }
 
@@ -735,8 +732,7 @@ trait FSM[S, D] extends Actor with Listeners with ActorLogging {
       currentState = nextState
 
       val stopEvent = StopEvent(reason, currentState.stateName, currentState.stateData)
-      if (terminateEvent.isDefinedAt(stopEvent))
-        terminateEvent(stopEvent)
+      terminateEvent.applyOrElse(stopEvent, ConstantFun.scalaAnyToUnit)
     }
   }
 
@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.actor
+
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.LongAdder
+import scala.annotation.tailrec
+import scala.collection.immutable
+import scala.concurrent.ExecutionContext
+import scala.concurrent.duration._
+import com.typesafe.config.Config
+import akka.event.LoggingAdapter
+import akka.util.Helpers
+import akka.dispatch.AbstractNodeQueue
+
+/**
+ * This scheduler implementation is based on a hierarchy of timing wheels as
+ * described by Varghese and Lauck: the lowest wheel has `ticks-per-wheel`
+ * buckets of one tick each, and every wheel above it has as many buckets,
+ * each spanning one full revolution of the wheel below. A task is put into
+ * the lowest wheel whose span covers its delay and cascades down one wheel
+ * whenever the wheel below completes a revolution. Every task is thus
+ * touched at most once per wheel, instead of once per revolution as in the
+ * [[LightArrayRevolverScheduler]], and a tick only visits tasks which are
+ * actually due, so the cost of a tick does not grow with the number of
+ * pending long timeouts.
+ *
+ * Scheduling appends the task to a lock-free queue which the timer thread
+ * drains on every tick. Cancellation marks the task and hands it to the timer
+ * thread, which unlinks it from its bucket, so that both operations are O(1)
+ * and cancelled tasks do not linger until their deadline. Like the
+ * LightArrayRevolverScheduler, this scheduler does not obtain a current time
+ * stamp when scheduling single-shot tasks but rounds the delay up to a full
+ * multiple of the TickDuration.
+ *
+ * Tasks scheduled with a tolerance are due at the tick within their window
+ * which is divisible by the largest power of two, so that timers with
+ * overlapping windows share one bucket and expire together.
+ *
+ * The tasks found due in one tick are handed to each ExecutionContext in
+ * batches of at most `dispatch-batch-size` tasks, one submission per batch.
+ *
+ * It is selected by setting `akka.scheduler.implementation` to
+ * `akka.actor.HierarchicalTimingWheelScheduler` and uses the same
+ * `tick-duration`, `ticks-per-wheel` and `shutdown-timeout` settings.
+ */
+class HierarchicalTimingWheelScheduler(
+  config: Config,
+  log: LoggingAdapter,
+  threadFactory: ThreadFactory)
+  extends TimingWheelScheduler(config, log, threadFactory) {
+
+  import Helpers.Requiring
+
+  val WheelSize =
+    config.getInt("akka.scheduler.ticks-per-wheel")
+      .requiring(ticks ⇒ ticks > 1 && (ticks & (ticks - 1)) == 0, "ticks-per-wheel must be a power of 2 larger than 1")
+
+  import TimingWheelScheduler.TimerTask
+  import HierarchicalTimingWheelScheduler._
+
+  override def scheduleOnce(
+    delay: FiniteDuration,
+    tolerance: FiniteDuration,
+    runnable: Runnable)(implicit executor: ExecutionContext): Cancellable = {
+    require(tolerance >= Duration.Zero, "tolerance must not be negative")
+    checkMaxDelay(tolerance.toNanos)
+    try schedule(executor, runnable, roundUp(delay), tolerance.toNanos)
+    catch {
+      case SchedulerException(msg) ⇒ throw new IllegalStateException(msg)
+    }
+  }
+
+  /*
+   * BELOW IS THE ACTUAL TIMER IMPLEMENTATION
+   */
+
+  private val wheelBits = Integer.numberOfTrailingZeros(WheelSize)
+  private val wheelMask = WheelSize - 1
+  // enough wheels to span the maximum delay of Int.MaxValue ticks with ample margin
+  private val levels = (MaxDelayBits + wheelBits - 1) / wheelBits
+  private val queue = new TaskQueue
+  private val cancelled = new TaskQueue
+
+  override protected def enqueue(ec: ExecutionContext, r: Runnable, delayNanos: Long, toleranceNanos: Long, dueNanos: Long): TaskHolder = {
+    val task = new TaskHolder(r, delayNanos, toleranceNanos, dueNanos, ec, cancelledCount, cancelled)
+    queue.add(task)
+    task
+  }
+
+  startTimer(new TimerLoop("hierarchical timing wheel") {
+
+    var tick: Long = 0L // the next tick to be processed, counted from timer start
+    val wheels = Array.fill(levels, WheelSize)(new Bucket)
+
+    override protected def clearAll(): immutable.Seq[TimerTask] = {
+      @tailrec def collect(q: TaskQueue, acc: Vector[TimerTask]): Vector[TimerTask] = {
+        q.poll() match {
+          case null ⇒ acc
+          case x    ⇒ collect(q, if (x.isCancelled) acc else acc :+ x)
+        }
+      }
+      @tailrec def collectBucket(task: TaskHolder, acc: Vector[TimerTask]): Vector[TimerTask] =
+        if (task eq null) acc
+        else {
+          val next = task.unlinkNext()
+          collectBucket(next, if (task.isCancelled) acc else acc :+ task)
+        }
+      checkCancelled()
+      val pending = wheels.foldLeft(Vector.empty[TimerTask]) { (acc, wheel) ⇒
+        wheel.foldLeft(acc)((a, bucket) ⇒ collectBucket(bucket.clear(), a))
+      }
+      collect(queue, pending)
+    }
+
+    /*
+     * Files the task under the lowest wheel whose span covers the distance to
+     * its deadline, in the bucket which that wheel reaches at the deadline.
+     * Tasks due in the current tick go into the current bucket of the lowest
+     * wheel, which is processed after the queues have been drained.
+     */
+    private def place(task: TaskHolder, deadline: Long): Unit = {
+      val delta = deadline - tick
+      if (delta < 0) dispatch(task)
+      else {
+        val level =
+          if (delta == 0) 0
+          else math.min((63 - java.lang.Long.numberOfLeadingZeros(delta)) / wheelBits, levels - 1)
+        task.deadline = deadline
+        wheels(level)(((deadline >>> (level * wheelBits)) & wheelMask).toInt).add(task)
+      }
+    }
+
+    @tailrec
+    private def checkQueue(time: Long): Unit = queue.pollNode() match {
+      case null ⇒ ()
+      case node ⇒
+        val task = node.value
+        if (!task.isCancelled) {
+          val earliest = (
+            time - start + // calculate the nanos since timer start
+            task.delayNanos + // adding the desired delay
+            tickNanos - 1 // rounding up
+          ) / tickNanos // and converting to tick number
+          if (task.toleranceNanos == 0L) place(task, earliest)
+          else {
+            val latest = (time - start + task.delayNanos + task.toleranceNanos) / tickNanos
+            place(task, if (latest > earliest) coalesce(earliest, latest) else earliest)
+          }
+        }
+        checkQueue(time)
+    }
+
+    @tailrec
+    private def checkCancelled(): Unit = cancelled.poll() match {
+      case null ⇒ ()
+      case task ⇒
+        task.unlink()
+        checkCancelled()
+    }
+
+    @tailrec
+    private def cascade(task: TaskHolder): Unit =
+      if (task ne null) {
+        val next = task.unlinkNext()
+        if (!task.isCancelled) place(task, task.deadline)
+        cascade(next)
+      }
+
+    @tailrec
+    private def executeBucket(task: TaskHolder): Unit =
+      if (task ne null) {
+        val next = task.unlinkNext()
+        dispatch(task)
+        executeBucket(next)
+      }
+
+    override protected def nextTick(time: Long): Unit = {
+      val sleepTime = start + (tick * tickNanos) - time
+
+      checkCancelled()
+      if (sleepTime > 0) {
+        // check the queue before taking a nap
+        checkQueue(time)
+        flush()
+        waitNanos(sleepTime)
+      } else {
+        // move the due buckets of the upper wheels down, starting at the top
+        // so that tasks passing through several wheels in this tick end up
+        // in the current bucket of the lowest one
+        var level = levels - 1
+        while (level > 0) {
+          val shift = level * wheelBits
+          if ((tick & ((1L << shift) - 1)) == 0)
+            cascade(wheels(level)(((tick >>> shift) & wheelMask).toInt).clear())
+          level -= 1
+        }
+        checkQueue(time)
+        executeBucket(wheels(0)((tick & wheelMask).toInt).clear())
+        flush()
+
+        tick += 1
+        ticked()
+      }
+    }
+  })
+}
+
+object HierarchicalTimingWheelScheduler {
+  /**
+   * Base-2 logarithm of the number of ticks spanned by all wheels together,
+   * which must exceed the maximum delay of Int.MaxValue ticks plus the
+   * time a task may spend in the queue.
+   */
+  private final val MaxDelayBits = 34
+
+  private class TaskQueue extends AbstractNodeQueue[TaskHolder]
+
+  /**
+   * Returns the tick in `[earliest, latest]` which is divisible by the
+   * largest power of two: the common prefix of `earliest - 1` and `latest`
+   * followed by a one and zeros.
+   */
+  private def coalesce(earliest: Long, latest: Long): Long =
+    latest & -java.lang.Long.highestOneBit((earliest - 1) ^ latest)
+
+  /**
+   * A bucket holds a doubly linked list of TaskHolders, which is only ever
+   * accessed by the timer thread.
+   */
+  private[actor] final class Bucket {
+    private[this] var head: TaskHolder = null
+
+    def add(task: TaskHolder): Unit = {
+      task.bucket = this
+      task.next = head
+      if (head ne null) head.prev = task
+      head = task
+    }
+
+    def remove(task: TaskHolder): Unit = {
+      if (task.prev ne null) task.prev.next = task.next
+      else head = task.next
+      if (task.next ne null) task.next.prev = task.prev
+    }
+
+    /**
+     * Detaches and returns the list of tasks; the caller must take each
+     * task out with unlinkNext.
+     */
+    def clear(): TaskHolder = {
+      val h = head
+      head = null
+      h
+    }
+  }
+
+  /**
+   * INTERNAL API
+   */
+  protected[actor] final class TaskHolder(
+    runnable: Runnable,
+    val delayNanos: Long,
+    val toleranceNanos: Long,
+    dueNanos: Long,
+    executionContext: ExecutionContext,
+    cancelledCount: LongAdder,
+    cancelled: AbstractNodeQueue[TaskHolder])
+    extends TimingWheelScheduler.TaskHolder(runnable, dueNanos, executionContext, cancelledCount) {
+
+    // the following fields are only accessed by the timer thread
+    private[actor] var deadline: Long = 0L
+    private[actor] var bucket: Bucket = null
+    private[actor] var prev: TaskHolder = null
+    private[actor] var next: TaskHolder = null
+
+    /**
+     * Removes this task from its bucket, if any.
+     */
+    private[actor] def unlink(): Unit =
+      if (bucket ne null) {
+        bucket.remove(this)
+        bucket = null
+        prev = null
+        next = null
+      }
+
+    /**
+     * Clears the links of this task after its bucket has been cleared,
+     * returning the next task of the detached list.
+     */
+    private[actor] def unlinkNext(): TaskHolder = {
+      val n = next
+      bucket = null
+      prev = null
+      next = null
+      n
+    }
+
+    override protected def onCancel(): Unit =
+      cancelled.add(this) // let the timer thread unlink it
+  }
+}
@@ -152,6 +152,27 @@ trait Scheduler {
     delay: FiniteDuration,
     runnable: Runnable)(implicit executor: ExecutionContext): Cancellable
 
+  /**
+   * Schedules a Runnable to be run once with a delay and a tolerance, i.e.
+   * the runnable is executed after at least `delay` and, timer resolution
+   * permitting, at most `delay + tolerance` have passed. Implementations may
+   * use the tolerance to merge timers with overlapping windows into a single
+   * expiry and dispatch; the default implementation ignores it.
+   *
+   * @throws IllegalArgumentException if the given delays exceed the maximum
+   * reach (calculated as: `delay / tickNanos > Int.MaxValue`) or if the
+   * tolerance is negative.
+   *
+   * Java & Scala API
+   */
+  def scheduleOnce(
+    delay: FiniteDuration,
+    tolerance: FiniteDuration,
+    runnable: Runnable)(implicit executor: ExecutionContext): Cancellable = {
+    require(tolerance >= Duration.Zero, "tolerance must not be negative")
+    scheduleOnce(delay, runnable)
+  }
+
   /**
    * The maximum supported task frequency of this scheduler, i.e. the inverse
    * of the minimum time interval between executions of a recurring task, in Hz.
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.actor
+
+import java.util.concurrent.atomic.AtomicLongArray
+import scala.concurrent.duration._
+
+/**
+ * Implemented by [[Scheduler]]s which record their load and the lateness of
+ * the timers they fire, see [[SchedulerMetrics]].
+ */
+trait InstrumentedScheduler { this: Scheduler ⇒
+  /**
+   * Returns a snapshot of the metrics recorded since this scheduler was
+   * started.
+   *
+   * Java & Scala API
+   */
+  def metrics(): SchedulerMetrics
+}
+
+/**
+ * A snapshot of the counters and histograms of an [[InstrumentedScheduler]].
+ * All counts are cumulative since the scheduler was started; rates are
+ * obtained by comparing two snapshots, e.g. with [[SchedulerMetrics#cancellationRate]].
+ *
+ * The lateness of a timer is split into two parts in order to tell where it
+ * was lost: `dispatchLateness` is the time from the due time of the timer
+ * (the moment it was scheduled plus its delay rounded up to whole ticks) to
+ * the moment the timer thread handed it to its ExecutionContext, which grows
+ * when the timer thread or the wheel is behind, and `executionLateness` is
+ * the time from that hand-over to the moment the task started running, which
+ * grows when the ExecutionContext is behind. Recording lateness requires a
+ * clock reading per scheduled timer, hence both histograms are only filled in
+ * when enabled in the scheduler’s configuration.
+ *
+ * @param timestampNanos the `System.nanoTime` at which the snapshot was taken
+ * @param scheduled the number of timers scheduled with a positive delay
+ * @param fired the number of timers handed to their ExecutionContext
+ * @param cancelled the number of timers cancelled before firing
+ * @param ticks the number of ticks processed
+ * @param tickTime the time spent by the timer thread on processing each tick
+ * @param dispatchLateness the time timers spent due but not yet dispatched
+ * @param executionLateness the time timers spent dispatched but not yet running
+ */
+final class SchedulerMetrics private[akka] (
+  val timestampNanos: Long,
+  val scheduled: Long,
+  val fired: Long,
+  val cancelled: Long,
+  val ticks: Long,
+  val tickTime: SchedulerMetrics.Histogram,
+  val dispatchLateness: SchedulerMetrics.Histogram,
+  val executionLateness: SchedulerMetrics.Histogram) {
+
+  /**
+   * The number of timers which have been scheduled but have neither fired
+   * nor been cancelled yet.
+   */
+  def pending: Long = math.max(scheduled - fired - cancelled, 0L)
+
+  /**
+   * The number of cancellations per second between the given earlier
+   * snapshot and this one.
+   */
+  def cancellationRate(previous: SchedulerMetrics): Double =
+    perSecond(cancelled - previous.cancelled, previous)
+
+  /**
+   * The number of timers fired per second between the given earlier snapshot
+   * and this one.
+   */
+  def firingRate(previous: SchedulerMetrics): Double =
+    perSecond(fired - previous.fired, previous)
+
+  private def perSecond(n: Long, previous: SchedulerMetrics): Double = {
+    val elapsed = timestampNanos - previous.timestampNanos
+    if (elapsed <= 0) 0.0 else n * 1e9 / elapsed
+  }
+
+  override def toString: String =
+    s"SchedulerMetrics(scheduled=$scheduled, fired=$fired, cancelled=$cancelled, pending=$pending, ticks=$ticks, " +
+      s"tickTime=$tickTime, dispatchLateness=$dispatchLateness, executionLateness=$executionLateness)"
+}
+
+object SchedulerMetrics {
+  /**
+   * The lowest bucket counts durations below 2^MinShift nanoseconds (about
+   * one microsecond), every further bucket doubles the bound.
+   */
+  private final val MinShift = 10
+  private final val Buckets = 40
+
+  private def bucketFor(nanos: Long): Int =
+    if (nanos < (1L << MinShift)) 0
+    else math.min(64 - java.lang.Long.numberOfLeadingZeros(nanos) - MinShift, Buckets - 1)
+
+  /**
+   * A histogram of durations with buckets of exponentially growing width:
+   * bucket `i` counts the durations below `upperBound(i)` which are not
+   * counted by a lower bucket; the last bucket also counts all longer ones.
+   */
+  final class Histogram private[SchedulerMetrics] (counts: Array[Long]) {
+    /** The total number of recorded durations. */
+    val count: Long = counts.sum
+
+    def bucketCount: Int = counts.length
+
+    /** The number of durations in the given bucket. */
+    def bucket(i: Int): Long = counts(i)
+
+    /** The exclusive upper bound of the given bucket. */
+    def upperBound(i: Int): FiniteDuration = (1L << (i + MinShift)).nanos
+
+    /**
+     * The upper bound of the bucket containing the given quantile, e.g.
+     * `percentile(0.99)`, or zero if nothing was recorded.
+     */
+    def percentile(q: Double): FiniteDuration =
+      if (count == 0) Duration.Zero
+      else {
+        val rank = math.max(math.ceil(q * count).toLong, 1L)
+        var i = 0
+        var seen = counts(0)
+        while (seen < rank && i < counts.length - 1) {
+          i += 1
+          seen += counts(i)
+        }
+        upperBound(i)
+      }
+
+    override def toString: String =
+      if (count == 0) "Histogram(empty)"
+      else s"Histogram(count=$count, p50<${percentile(0.5)}, p99<${percentile(0.99)}, max<${percentile(1.0)})"
+  }
+
+  /**
+   * INTERNAL API
+   *
+   * Records durations into a [[Histogram]]; safe for concurrent use.
+   */
+  private[akka] final class Recorder {
+    private[this] val counts = new AtomicLongArray(Buckets)
+
+    def record(nanos: Long): Unit = counts.incrementAndGet(bucketFor(nanos))
+
+    def snapshot(): Histogram = new Histogram(Array.tabulate(Buckets)(counts.get))
+  }
+}
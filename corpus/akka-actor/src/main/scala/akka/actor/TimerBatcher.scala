@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.actor
+
+import java.util.{ ArrayList, IdentityHashMap }
+import scala.concurrent.ExecutionContext
+import scala.util.control.NonFatal
+
+/**
+ * INTERNAL API
+ *
+ * Collects the tasks which a timer thread finds due and hands them to their
+ * ExecutionContexts with one submission per batch of at most `maxBatchSize`
+ * tasks instead of one submission per task, so that many timers expiring in
+ * the same tick do not flood the executor. The tasks of a batch run one after
+ * the other on one thread, hence the batch size bounds how long a batch can
+ * occupy it. Only to be used by the timer thread.
+ */
+private[akka] final class TimerBatcher(maxBatchSize: Int) {
+  import TimerBatcher._
+
+  require(maxBatchSize > 0, "maxBatchSize must be > 0")
+
+  private[this] val pending = new IdentityHashMap[ExecutionContext, ArrayList[Runnable]]
+
+  def add(executionContext: ExecutionContext, task: Runnable): Unit = {
+    val tasks = pending.get(executionContext) match {
+      case null ⇒
+        val ts = new ArrayList[Runnable]
+        pending.put(executionContext, ts)
+        ts
+      case ts ⇒ ts
+    }
+    tasks.add(task)
+  }
+
+  def flush(): Unit = flush(0L, null)
+
+  /**
+   * Submits the collected tasks; if a recorder is given, every task records
+   * the time from `dispatched` until it starts running.
+   */
+  def flush(dispatched: Long, executionLateness: SchedulerMetrics.Recorder): Unit =
+    if (!pending.isEmpty) {
+      val entries = pending.entrySet.iterator
+      while (entries.hasNext) {
+        val entry = entries.next()
+        val ec = entry.getKey
+        val tasks = entry.getValue
+        val n = tasks.size
+        if ((n == 1 || maxBatchSize == 1) && (executionLateness eq null)) {
+          var i = 0
+          while (i < n) {
+            submit(ec, tasks.get(i))
+            i += 1
+          }
+        } else {
+          var from = 0
+          while (from < n) {
+            val until = math.min(from + maxBatchSize, n)
+            submit(ec, new Batch(ec, tasks, from, until, dispatched, executionLateness))
+            from = until
+          }
+        }
+      }
+      pending.clear()
+    }
+}
+
+/**
+ * INTERNAL API
+ */
+private[akka] object TimerBatcher {
+  private def submit(ec: ExecutionContext, runnable: Runnable): Unit =
+    try ec execute runnable catch {
+      case _: InterruptedException ⇒ Thread.currentThread.interrupt()
+      case NonFatal(e)             ⇒ ec.reportFailure(e)
+    }
+
+  /**
+   * Runs the tasks in `[from, until)`, reporting their failures to the
+   * ExecutionContext; if the thread is torn out of the loop by a fatal error
+   * the remaining tasks are submitted as a new batch.
+   */
+  private final class Batch(
+    ec: ExecutionContext,
+    tasks: ArrayList[Runnable],
+    from: Int,
+    until: Int,
+    dispatched: Long,
+    executionLateness: SchedulerMetrics.Recorder) extends Runnable {
+
+    override def run(): Unit = {
+      var i = from
+      try {
+        while (i < until) {
+          val task = tasks.get(i)
+          i += 1
+          if (executionLateness ne null) executionLateness.record(System.nanoTime - dispatched)
+          try task.run() catch {
+            case NonFatal(e) ⇒ ec.reportFailure(e)
+          }
+        }
+      } finally {
+        if (i < until) submit(ec, new Batch(ec, tasks, i, until, dispatched, executionLateness))
+      }
+    }
+  }
+}
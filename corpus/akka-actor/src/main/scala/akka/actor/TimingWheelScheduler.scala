@@ -0,0 +1,407 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.actor
+
+import java.io.Closeable
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.{ AtomicLong, AtomicReference, LongAdder }
+import scala.annotation.tailrec
+import scala.collection.immutable
+import scala.concurrent.{ Await, ExecutionContext, Future, Promise }
+import scala.concurrent.duration._
+import scala.util.control.{ NonFatal }
+import com.typesafe.config.Config
+import akka.event.LoggingAdapter
+import akka.util.Helpers
+import akka.util.Unsafe.{ instance ⇒ unsafe }
+
+/**
+ * INTERNAL API
+ *
+ * The parts shared by the schedulers which file their tasks into a timing
+ * wheel advanced by a timer thread, the [[LightArrayRevolverScheduler]] and
+ * the [[HierarchicalTimingWheelScheduler]]: their common settings, repeated
+ * and single-shot scheduling, shutdown and the life cycle of the timer
+ * thread. An implementation hands each task to its wheel in `enqueue` and
+ * advances the wheel in a [[TimerLoop]], which it starts at the end of its
+ * constructor with `startTimer`.
+ *
+ * The scheduler keeps [[SchedulerMetrics]] about its load; the lateness
+ * histograms are only recorded if `akka.scheduler.record-lateness` is on.
+ */
+private[akka] abstract class TimingWheelScheduler(
+  config: Config,
+  log: LoggingAdapter,
+  threadFactory: ThreadFactory)
+  extends Scheduler with Closeable with InstrumentedScheduler {
+
+  import Helpers.Requiring
+  import Helpers.ConfigOps
+
+  val TickDuration =
+    config.getMillisDuration("akka.scheduler.tick-duration")
+      .requiring(_ >= 10.millis || !Helpers.isWindows, "minimum supported akka.scheduler.tick-duration on Windows is 10ms")
+      .requiring(_ >= 1.millis, "minimum supported akka.scheduler.tick-duration is 1ms")
+  val ShutdownTimeout = config.getMillisDuration("akka.scheduler.shutdown-timeout")
+  val RecordLateness = config.getBoolean("akka.scheduler.record-lateness")
+  val DispatchBatchSize =
+    config.getInt("akka.scheduler.dispatch-batch-size")
+      .requiring(_ > 0, "dispatch-batch-size must be > 0")
+
+  import TimingWheelScheduler._
+
+  protected def roundUp(d: FiniteDuration): FiniteDuration = {
+    val dn = d.toNanos
+    val r = ((dn - 1) / tickNanos + 1) * tickNanos
+    if (r != dn && r > 0 && dn > 0) r.nanos else d
+  }
+
+  /**
+   * Clock implementation is replaceable (for testing); the implementation must
+   * return a monotonically increasing series of Long nanoseconds.
+   */
+  protected def clock(): Long = System.nanoTime
+
+  /**
+   * Overridable for tests
+   */
+  protected def getShutdownTimeout: FiniteDuration = ShutdownTimeout
+
+  /**
+   * Overridable for tests
+   */
+  protected def waitNanos(nanos: Long): Unit = {
+    // see http://www.javamex.com/tutorials/threads/sleep_issues.shtml
+    val sleepMs = if (Helpers.isWindows) (nanos + 4999999) / 10000000 * 10 else (nanos + 999999) / 1000000
+    try Thread.sleep(sleepMs) catch {
+      case _: InterruptedException ⇒ Thread.currentThread.interrupt() // we got woken up
+    }
+  }
+
+  override def schedule(
+    initialDelay: FiniteDuration,
+    delay: FiniteDuration,
+    runnable: Runnable)(implicit executor: ExecutionContext): Cancellable = {
+    checkMaxDelay(roundUp(delay).toNanos)
+    try new AtomicReference[Cancellable](InitialRepeatMarker) with Cancellable { self ⇒
+      compareAndSet(InitialRepeatMarker, schedule(
+        executor,
+        new AtomicLong(clock() + initialDelay.toNanos) with Runnable {
+          override def run(): Unit = {
+            try {
+              runnable.run()
+              val driftNanos = clock() - getAndAdd(delay.toNanos)
+              if (self.get != null)
+                swap(schedule(executor, this, Duration.fromNanos(Math.max(delay.toNanos - driftNanos, 1)), 0L))
+            } catch {
+              case _: SchedulerException ⇒ // ignore failure to enqueue or terminated target actor
+            }
+          }
+        }, roundUp(initialDelay), 0L))
+
+      @tailrec private def swap(c: Cancellable): Unit = {
+        get match {
+          case null ⇒ if (c != null) c.cancel()
+          case old ⇒ if (!compareAndSet(old, c)) swap(c)
+        }
+      }
+
+      @tailrec final def cancel(): Boolean = {
+        get match {
+          case null ⇒ false
+          case c ⇒
+            if (c.cancel()) compareAndSet(c, null)
+            else compareAndSet(c, null) || cancel()
+        }
+      }
+
+      override def isCancelled: Boolean = get == null
+    } catch {
+      case SchedulerException(msg) ⇒ throw new IllegalStateException(msg)
+    }
+  }
+
+  override def scheduleOnce(delay: FiniteDuration, runnable: Runnable)(implicit executor: ExecutionContext): Cancellable =
+    try schedule(executor, runnable, roundUp(delay), 0L)
+    catch {
+      case SchedulerException(msg) ⇒ throw new IllegalStateException(msg)
+    }
+
+  override def close(): Unit = Await.result(stop(), getShutdownTimeout) foreach {
+    task ⇒
+      try task.run() catch {
+        case e: InterruptedException ⇒ throw e
+        case _: SchedulerException ⇒ // ignore terminated actors
+        case NonFatal(e) ⇒ log.error(e, "exception while executing timer task")
+      }
+  }
+
+  override val maxFrequency: Double = 1.second / TickDuration
+
+  override def metrics(): SchedulerMetrics = {
+    val ticks = tickCount.get // read first, see TimerLoop.publishCounters
+    new SchedulerMetrics(
+      timestampNanos = System.nanoTime,
+      scheduled = scheduledCount.sum,
+      fired = firedCount.get,
+      cancelled = cancelledCount.sum,
+      ticks = ticks,
+      tickTime = tickTime.snapshot(),
+      dispatchLateness = dispatchLateness.snapshot(),
+      executionLateness = executionLateness.snapshot())
+  }
+
+  /*
+   * BELOW IS THE TIMER SCAFFOLDING SHARED BY THE IMPLEMENTATIONS
+   */
+
+  protected val start = clock()
+  protected val tickNanos = TickDuration.toNanos
+
+  // firedCount and tickCount are only written by the timer thread
+  private val scheduledCount = new LongAdder
+  protected val cancelledCount = new LongAdder
+  private val firedCount = new AtomicLong
+  private val tickCount = new AtomicLong
+  private val tickTime = new SchedulerMetrics.Recorder
+  private val dispatchLateness = new SchedulerMetrics.Recorder
+  private val executionLateness = new SchedulerMetrics.Recorder
+
+  /**
+   * Hands a task with a positive delay to the timer thread; the tolerance is
+   * zero unless the task was scheduled with `scheduleOnce(delay, tolerance, …)`.
+   * The task must be created with the given due time and `cancelledCount`.
+   */
+  protected def enqueue(ec: ExecutionContext, r: Runnable, delayNanos: Long, toleranceNanos: Long, dueNanos: Long): TaskHolder
+
+  protected final def schedule(ec: ExecutionContext, r: Runnable, delay: FiniteDuration, toleranceNanos: Long): TimerTask =
+    if (delay <= Duration.Zero) {
+      if (stopped.get != null) throw new SchedulerException("cannot enqueue after timer shutdown")
+      ec.execute(r)
+      NotCancellable
+    } else if (stopped.get != null) {
+      throw new SchedulerException("cannot enqueue after timer shutdown")
+    } else {
+      val delayNanos = delay.toNanos
+      checkMaxDelay(delayNanos)
+
+      val dueNanos = if (RecordLateness) clock() + delayNanos + toleranceNanos else 0L
+      scheduledCount.increment()
+      val task = enqueue(ec, r, delayNanos, toleranceNanos, dueNanos)
+      if (stopped.get != null && task.cancel())
+        throw new SchedulerException("cannot enqueue after timer shutdown")
+      task
+    }
+
+  protected final def checkMaxDelay(delayNanos: Long): Unit =
+    if (delayNanos / tickNanos > Int.MaxValue)
+      // 1 second margin in the error message due to rounding
+      throw new IllegalArgumentException(s"Task scheduled with [${delayNanos.nanos.toSeconds}] seconds delay, " +
+        s"which is too far in future, maximum delay is [${(tickNanos * Int.MaxValue).nanos.toSeconds - 1}] seconds")
+
+  private val stopped = new AtomicReference[Promise[immutable.Seq[TimerTask]]]
+  private def stop(): Future[immutable.Seq[TimerTask]] = {
+    val p = Promise[immutable.Seq[TimerTask]]()
+    if (stopped.compareAndSet(null, p)) {
+      // Interrupting the timer thread to make it shut down faster is not good since
+      // it could be in the middle of executing the scheduled tasks, which might not
+      // respond well to being interrupted.
+      // Instead we just wait one more tick for it to finish.
+      p.future
+    } else Future.successful(Nil)
+  }
+
+  @volatile private var timerThread: Thread = _
+
+  /**
+   * Starts the timer thread; to be called once, at the end of the constructor
+   * of the implementation, so that the state of its wheel is initialized.
+   */
+  protected final def startTimer(timer: TimerLoop): Unit = {
+    timerThread = threadFactory.newThread(timer)
+    timerThread.start()
+  }
+
+  /**
+   * The loop of the timer thread, which advances the wheel until the
+   * scheduler is stopped and then hands the pending tasks to `close`. If the
+   * wheel throws, the loop continues on a new thread.
+   *
+   * @param name names the scheduler in log messages
+   */
+  protected abstract class TimerLoop(name: String) extends Runnable {
+
+    private[this] val batcher = new TimerBatcher(DispatchBatchSize)
+    private[this] var now: Long = 0L // the clock reading taken at the start of the current iteration
+    private[this] var fired: Long = 0L
+    private[this] var ticks: Long = 0L
+
+    /**
+     * Processes the current tick if it is due, otherwise takes in the newly
+     * scheduled tasks and waits until it is.
+     *
+     * @param time the clock reading taken at the start of this iteration
+     */
+    protected def nextTick(time: Long): Unit
+
+    /**
+     * Removes the tasks which are still pending from the wheel and returns
+     * them.
+     */
+    protected def clearAll(): immutable.Seq[TimerTask]
+
+    override final def run =
+      try loop()
+      catch {
+        case t: Throwable ⇒
+          log.error(t, s"exception on $name’s timer thread")
+          stopped.get match {
+            case null ⇒
+              val thread = threadFactory.newThread(this)
+              log.info(s"starting new $name timer thread")
+              try thread.start()
+              catch {
+                case e: Throwable ⇒
+                  log.error(e, s"$name cannot start new thread, ship’s going down!")
+                  stopped.set(Promise successful Nil)
+                  clearAll()
+              }
+              timerThread = thread
+            case p ⇒
+              assert(stopped.compareAndSet(p, Promise successful Nil), s"Stop signal violated in $name")
+              p success clearAll()
+          }
+          throw t
+      }
+
+    /**
+     * Hands the task to the batcher unless it was cancelled or executed
+     * already, see `flush`.
+     */
+    protected final def dispatch(task: TaskHolder): Unit =
+      if (task.dispatchTo(batcher)) {
+        fired += 1
+        if (RecordLateness) dispatchLateness.record(now - task.dueNanos)
+      }
+
+    /**
+     * Submits the tasks dispatched since the last flush to their
+     * ExecutionContexts.
+     */
+    protected final def flush(): Unit =
+      batcher.flush(now, if (RecordLateness) executionLateness else null)
+
+    /**
+     * To be called when a tick has been processed.
+     */
+    protected final def ticked(): Unit = {
+      ticks += 1
+      tickTime.record(clock() - now)
+    }
+
+    /*
+     * Publishes the counters of the timer thread, writing the tick count last
+     * so that a reader which sees it also sees the fired count of the same
+     * iteration; lazySet suffices since only this thread writes them.
+     */
+    private def publishCounters(): Unit = {
+      firedCount.lazySet(fired)
+      tickCount.lazySet(ticks)
+    }
+
+    @tailrec private def loop(): Unit = {
+      now = clock()
+      nextTick(now)
+      publishCounters()
+      stopped.get match {
+        case null ⇒ loop()
+        case p ⇒
+          assert(stopped.compareAndSet(p, Promise successful Nil), s"Stop signal violated in $name")
+          p success clearAll()
+      }
+    }
+  }
+}
+
+/**
+ * INTERNAL API
+ */
+private[akka] object TimingWheelScheduler {
+  private[this] val taskOffset = unsafe.objectFieldOffset(classOf[TaskHolder].getDeclaredField("task"))
+
+  /**
+   * INTERNAL API
+   */
+  protected[actor] trait TimerTask extends Runnable with Cancellable
+
+  /**
+   * INTERNAL API
+   *
+   * Holds a scheduled task until it is dispatched or cancelled, upon which
+   * the reference to the task is replaced by a marker, leaving only this
+   * shell in the wheel. Implementations add the state their wheel keeps per
+   * task.
+   *
+   * @param dueNanos the clock reading at which the task is due, if lateness is recorded
+   * @param cancelledCount counts the successful cancellations
+   */
+  protected[actor] abstract class TaskHolder(
+    @volatile var task: Runnable,
+    val dueNanos: Long,
+    executionContext: ExecutionContext,
+    cancelledCount: LongAdder)
+    extends TimerTask {
+
+    @tailrec
+    private final def extractTask(replaceWith: Runnable): Runnable =
+      task match {
+        case t @ (ExecutedTask | CancelledTask) ⇒ t
+        case x ⇒ if (unsafe.compareAndSwapObject(this, taskOffset, x, replaceWith)) x else extractTask(replaceWith)
+      }
+
+    /**
+     * Adds the task to the given batcher unless it was cancelled or executed
+     * already, returning whether it did so.
+     */
+    private[akka] final def dispatchTo(batcher: TimerBatcher): Boolean = extractTask(ExecutedTask) match {
+      case ExecutedTask | CancelledTask ⇒ false
+      case other ⇒
+        batcher.add(executionContext, other)
+        true
+    }
+
+    /**
+     * Called once if the task is cancelled before it was dispatched.
+     */
+    protected def onCancel(): Unit = ()
+
+    // This should only be called in execDirectly
+    override def run(): Unit = extractTask(ExecutedTask).run()
+
+    override def cancel(): Boolean = extractTask(CancelledTask) match {
+      case ExecutedTask | CancelledTask ⇒ false
+      case _ ⇒
+        cancelledCount.increment()
+        onCancel()
+        true
+    }
+
+    override def isCancelled: Boolean = task eq CancelledTask
+  }
+
+  private[this] val CancelledTask = new Runnable { def run = () }
+  private[this] val ExecutedTask = new Runnable { def run = () }
+
+  private val NotCancellable: TimerTask = new TimerTask {
+    def cancel(): Boolean = false
+    def isCancelled: Boolean = false
+    def run(): Unit = ()
+  }
+
+  private val InitialRepeatMarker: Cancellable = new Cancellable {
+    def cancel(): Boolean = false
+    def isCancelled: Boolean = false
+  }
+}
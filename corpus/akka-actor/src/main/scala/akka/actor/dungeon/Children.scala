@@ -131,7 +131,12 @@ private[akka] trait Children { this: ActorCell ⇒
 
   @tailrec final def reserveChild(name: String): Boolean = {
     val c = childrenRefs
-    swapChildrenRefs(c, c.reserve(name)) || reserveChild(name)
+    val n = c.reserve(name)
+    swapChildrenRefs(c, n) || {
+      // a concurrent container has already reserved the name in place
+      if (n eq c) c.unreserve(name)
+      reserveChild(name)
+    }
   }
 
   @tailrec final protected def unreserveChild(name: String): Boolean = {
@@ -153,8 +158,8 @@ private[akka] trait Children { this: ActorCell ⇒
 
   @tailrec final protected def setChildrenTerminationReason(reason: ChildrenContainer.SuspendReason): Boolean = {
     childrenRefs match {
-      case c: ChildrenContainer.TerminatingChildrenContainer ⇒
-        swapChildrenRefs(c, c.copy(reason = reason)) || setChildrenTerminationReason(reason)
+      case c: ChildrenContainer.TerminatingChildren ⇒
+        swapChildrenRefs(c, c.withReason(reason)) || setChildrenTerminationReason(reason)
       case _ ⇒ false
     }
   }
@@ -170,7 +175,10 @@ private[akka] trait Children { this: ActorCell ⇒
   protected def isTerminating = childrenRefs.isTerminating
 
   protected def waitingForChildrenOrNull = childrenRefs match {
-    case TerminatingChildrenContainer(_, _, w: WaitingForChildren) ⇒ w
+    case t: TerminatingChildren ⇒ t.reason match {
+      case w: WaitingForChildren ⇒ w
+      case _ ⇒ null
+    }
     case _ ⇒ null
   }
 
@@ -216,10 +224,10 @@ private[akka] trait Children { this: ActorCell ⇒
     }
 
     childrenRefs match { // The match must be performed BEFORE the removeChild
-      case TerminatingChildrenContainer(_, _, reason) ⇒
+      case t: TerminatingChildren ⇒
         removeChild(child) match {
-          case _: TerminatingChildrenContainer ⇒ None
-          case _ ⇒ Some(reason)
+          case _: TerminatingChildren ⇒ None
+          case _ ⇒ Some(t.reason)
         }
       case _ ⇒
         removeChild(child)
@@ -5,6 +5,7 @@
 package akka.actor.dungeon
 
 import scala.collection.immutable
+import scala.collection.concurrent.TrieMap
 
 import akka.actor.{ InvalidActorNameException, ChildStats, ChildRestartStats, ChildNameReserved, ActorRef }
 import akka.util.Collections.{ EmptyImmutableSeq, PartialImmutableValuesIterable }
@@ -49,13 +50,19 @@ private[akka] object ChildrenContainer {
   final case class Creation() extends SuspendReason with WaitingForChildren
   case object Termination extends SuspendReason
 
-  class ChildRestartsIterable(stats: immutable.MapLike[_, ChildStats, _]) extends PartialImmutableValuesIterable[ChildStats, ChildRestartStats] {
+  /**
+   * The number of children from which on a [[NormalChildrenContainer]] turns
+   * into a [[ConcurrentChildrenContainer]] when another name is reserved.
+   */
+  final val ConcurrentThreshold = 256
+
+  class ChildRestartsIterable(stats: collection.MapLike[_, ChildStats, _]) extends PartialImmutableValuesIterable[ChildStats, ChildRestartStats] {
     override final def apply(c: ChildStats) = c.asInstanceOf[ChildRestartStats]
     override final def isDefinedAt(c: ChildStats) = c.isInstanceOf[ChildRestartStats]
     override final def valuesIterator = stats.valuesIterator
   }
 
-  class ChildrenIterable(stats: immutable.MapLike[_, ChildStats, _]) extends PartialImmutableValuesIterable[ChildStats, ActorRef] {
+  class ChildrenIterable(stats: collection.MapLike[_, ChildStats, _]) extends PartialImmutableValuesIterable[ChildStats, ActorRef] {
     override final def apply(c: ChildStats) = c.asInstanceOf[ChildRestartStats].child
     override final def isDefinedAt(c: ChildStats) = c.isInstanceOf[ChildRestartStats]
     override final def valuesIterator = stats.valuesIterator
@@ -63,6 +70,16 @@ private[akka] object ChildrenContainer {
 
   trait WaitingForChildren
 
+  /**
+   * A container with outstanding termination requests, see
+   * [[TerminatingChildrenContainer]].
+   */
+  sealed trait TerminatingChildren extends ChildrenContainer {
+    def toDie: Set[ActorRef]
+    def reason: SuspendReason
+    def withReason(reason: SuspendReason): ChildrenContainer
+  }
+
   trait EmptyChildrenContainer extends ChildrenContainer {
     val emptyStats = immutable.TreeMap.empty[String, ChildStats]
     override def add(name: String, stats: ChildRestartStats): ChildrenContainer = new NormalChildrenContainer(emptyStats.updated(name, stats))
@@ -127,6 +144,8 @@ private[akka] object ChildrenContainer {
     override def reserve(name: String): ChildrenContainer =
       if (c contains name)
         throw InvalidActorNameException(s"actor name [$name] is not unique!")
+      else if (c.size >= ConcurrentThreshold)
+        new ConcurrentChildrenContainer((TrieMap.empty[String, ChildStats] ++= c) += (name → ChildNameReserved))
       else new NormalChildrenContainer(c.updated(name, ChildNameReserved))
 
     override def unreserve(name: String): ChildrenContainer = c.get(name) match {
@@ -156,7 +175,9 @@ private[akka] object ChildrenContainer {
    * the reason was “Terminating”.
    */
   final case class TerminatingChildrenContainer(c: immutable.TreeMap[String, ChildStats], toDie: Set[ActorRef], reason: SuspendReason)
-    extends ChildrenContainer {
+    extends TerminatingChildren {
+
+    override def withReason(reason: SuspendReason): ChildrenContainer = copy(reason = reason)
 
     override def add(name: String, stats: ChildRestartStats): ChildrenContainer = copy(c.updated(name, stats))
 
@@ -205,4 +226,105 @@ private[akka] object ChildrenContainer {
       else c.mkString("children (" + toDie.size + " terminating):\n    ", "\n    ", "\n") + toDie
   }
 
+  /**
+   * The children of an actor with many children, kept in a concurrent trie
+   * which is updated in place instead of being copied, so that adding,
+   * reserving and removing children neither copies a map nor is retried when
+   * other threads do the same at the time. The trie is shared by a
+   * [[ConcurrentChildrenContainer]] and the
+   * [[ConcurrentTerminatingChildrenContainer]]s it turns into while children
+   * are being stopped; only these state changes replace the container.
+   *
+   * The methods which update the trie therefore return this container, and
+   * the update has already taken effect when a compare-and-set of the
+   * container fails, see `Children.reserveChild`. Removing a child only
+   * removes the entry of that very child, so that retrying it cannot remove a
+   * child which has been given the same name in the meantime.
+   */
+  abstract class ConcurrentChildren(val c: TrieMap[String, ChildStats]) extends ChildrenContainer {
+
+    override def add(name: String, stats: ChildRestartStats): ChildrenContainer = {
+      c.put(name, stats)
+      this
+    }
+
+    protected def removeEntry(child: ActorRef): Unit = {
+      val name = child.path.name
+      c.get(name) match {
+        case Some(crs: ChildRestartStats) if (crs.child == child) ⇒ c.remove(name, crs)
+        case _ ⇒
+      }
+    }
+
+    override def getByName(name: String): Option[ChildStats] = c.get(name)
+
+    override def getByRef(actor: ActorRef): Option[ChildRestartStats] = c.get(actor.path.name) match {
+      case c @ Some(crs: ChildRestartStats) if (crs.child == actor) ⇒ c.asInstanceOf[Option[ChildRestartStats]]
+      case _ ⇒ None
+    }
+
+    override def children: immutable.Iterable[ActorRef] = new ChildrenIterable(c.readOnlySnapshot())
+
+    override def stats: immutable.Iterable[ChildRestartStats] = new ChildRestartsIterable(c.readOnlySnapshot())
+
+    override def reserve(name: String): ChildrenContainer =
+      if (c.putIfAbsent(name, ChildNameReserved).isDefined)
+        throw InvalidActorNameException(s"actor name [$name] is not unique!")
+      else this
+
+    override def unreserve(name: String): ChildrenContainer = {
+      c.remove(name, ChildNameReserved)
+      this
+    }
+  }
+
+  /**
+   * Normal children container of an actor with many children, see
+   * [[ConcurrentChildren]]; it is kept when the children become fewer again.
+   */
+  final class ConcurrentChildrenContainer(c: TrieMap[String, ChildStats]) extends ConcurrentChildren(c) {
+
+    override def remove(child: ActorRef): ChildrenContainer = {
+      removeEntry(child)
+      this
+    }
+
+    override def shallDie(actor: ActorRef): ChildrenContainer =
+      ConcurrentTerminatingChildrenContainer(c, Set(actor), UserRequest)
+
+    override def toString = c.size + " children"
+  }
+
+  /**
+   * Waiting state of an actor with many children, see
+   * [[TerminatingChildrenContainer]] and [[ConcurrentChildren]].
+   */
+  final case class ConcurrentTerminatingChildrenContainer(override val c: TrieMap[String, ChildStats], toDie: Set[ActorRef], reason: SuspendReason)
+    extends ConcurrentChildren(c) with TerminatingChildren {
+
+    override def withReason(reason: SuspendReason): ChildrenContainer = copy(reason = reason)
+
+    override def remove(child: ActorRef): ChildrenContainer = {
+      removeEntry(child)
+      val t = toDie - child
+      if (t.isEmpty) reason match {
+        case Termination ⇒ TerminatedChildrenContainer
+        case _ ⇒ new ConcurrentChildrenContainer(c)
+      }
+      else copy(toDie = t)
+    }
+
+    override def shallDie(actor: ActorRef): ChildrenContainer = copy(toDie = toDie + actor)
+
+    override def reserve(name: String): ChildrenContainer = reason match {
+      case Termination ⇒ throw new IllegalStateException("cannot reserve actor name '" + name + "': terminating")
+      case _ ⇒ super.reserve(name)
+    }
+
+    override def isTerminating: Boolean = reason == Termination
+    override def isNormal: Boolean = reason == UserRequest
+
+    override def toString = c.size + " children (" + toDie.size + " terminating)"
+  }
+
 }
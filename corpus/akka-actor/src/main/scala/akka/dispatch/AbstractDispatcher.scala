@@ -366,7 +366,8 @@ class ThreadPoolExecutorConfigurator(config: Config, prerequisites: DispatcherPr
               Some(config getString "task-queue-type") map {
                 case "array" ⇒ ThreadPoolConfig.arrayBlockingQueue(size, false) //TODO config fairness?
                 case "" | "linked" ⇒ ThreadPoolConfig.linkedBlockingQueue(size)
-                case x ⇒ throw new IllegalArgumentException("[%s] is not a valid task-queue-type [array|linked]!" format x)
+                case "transfer" ⇒ ThreadPoolConfig.linkedTransferQueue(size)
+                case x ⇒ throw new IllegalArgumentException("[%s] is not a valid task-queue-type [array|linked|transfer]!" format x)
               } map { qf ⇒ (q: ThreadPoolConfigBuilder) ⇒ q.setQueueFactory(qf) }
             case _ ⇒ None
           })
@@ -17,8 +17,16 @@ object ForkJoinExecutorConfigurator {
     parallelism: Int,
     threadFactory: ForkJoinPool.ForkJoinWorkerThreadFactory,
     unhandledExceptionHandler: Thread.UncaughtExceptionHandler,
-    asyncMode: Boolean)
-    extends ForkJoinPool(parallelism, threadFactory, unhandledExceptionHandler, asyncMode) with LoadMetrics {
+    asyncMode: Boolean,
+    maxCompensation: Int,
+    compensationPolicy: ForkJoinPool.CompensationPolicy)
+    extends ForkJoinPool(parallelism, threadFactory, unhandledExceptionHandler, asyncMode, maxCompensation, compensationPolicy) with LoadMetrics {
+    def this(
+      parallelism: Int,
+      threadFactory: ForkJoinPool.ForkJoinWorkerThreadFactory,
+      unhandledExceptionHandler: Thread.UncaughtExceptionHandler,
+      asyncMode: Boolean) = this(parallelism, threadFactory, unhandledExceptionHandler, asyncMode, Int.MaxValue, ForkJoinPool.CompensationPolicy.RUN_INLINE)
+
     def this(
       parallelism: Int,
       threadFactory: ForkJoinPool.ForkJoinWorkerThreadFactory,
@@ -66,9 +74,14 @@ class ForkJoinExecutorConfigurator(config: Config, prerequisites: DispatcherPrer
   class ForkJoinExecutorServiceFactory(
     val threadFactory: ForkJoinPool.ForkJoinWorkerThreadFactory,
     val parallelism: Int,
-    val asyncMode: Boolean) extends ExecutorServiceFactory {
+    val asyncMode: Boolean,
+    val maxCompensation: Int,
+    val compensationPolicy: ForkJoinPool.CompensationPolicy) extends ExecutorServiceFactory {
+    def this(threadFactory: ForkJoinPool.ForkJoinWorkerThreadFactory, parallelism: Int, asyncMode: Boolean) =
+      this(threadFactory, parallelism, asyncMode, Int.MaxValue, ForkJoinPool.CompensationPolicy.RUN_INLINE)
     def this(threadFactory: ForkJoinPool.ForkJoinWorkerThreadFactory, parallelism: Int) = this(threadFactory, parallelism, asyncMode = true)
-    def createExecutorService: ExecutorService = new AkkaForkJoinPool(parallelism, threadFactory, MonitorableThreadFactory.doNothing, asyncMode)
+    def createExecutorService: ExecutorService =
+      new AkkaForkJoinPool(parallelism, threadFactory, MonitorableThreadFactory.doNothing, asyncMode, maxCompensation, compensationPolicy)
   }
 
   final def createExecutorServiceFactory(id: String, threadFactory: ThreadFactory): ExecutorServiceFactory = {
@@ -86,12 +99,26 @@ class ForkJoinExecutorConfigurator(config: Config, prerequisites: DispatcherPrer
         """"task-peeking-mode" in "fork-join-executor" section could only set to "FIFO" or "LIFO".""")
     }
 
+    val maxCompensation =
+      if (config.getString("max-compensation") == "off") Int.MaxValue
+      else config.getInt("max-compensation")
+
+    val compensationPolicy = config.getString("compensation-policy") match {
+      case "run-inline" ⇒ ForkJoinPool.CompensationPolicy.RUN_INLINE
+      case "queue"      ⇒ ForkJoinPool.CompensationPolicy.QUEUE
+      case "fail"       ⇒ ForkJoinPool.CompensationPolicy.FAIL
+      case unsupported ⇒ throw new IllegalArgumentException("Cannot instantiate ForkJoinExecutorServiceFactory. " +
+        """"compensation-policy" in "fork-join-executor" section could only set to "run-inline", "queue" or "fail".""")
+    }
+
     new ForkJoinExecutorServiceFactory(
       validate(tf),
       ThreadPoolConfig.scaledPoolSize(
         config.getInt("parallelism-min"),
         config.getDouble("parallelism-factor"),
         config.getInt("parallelism-max")),
-      asyncMode)
+      asyncMode,
+      maxCompensation,
+      compensationPolicy)
   }
 }
@@ -43,6 +43,8 @@ object ThreadPoolConfig {
 
   def linkedBlockingQueue(capacity: Int): QueueFactory = () ⇒ new LinkedBlockingQueue[Runnable](capacity)
 
+  def linkedTransferQueue(capacity: Int): QueueFactory = () ⇒ new LinkedTransferQueue[Runnable](capacity)
+
   def reusableQueue(queue: BlockingQueue[Runnable]): QueueFactory = () ⇒ queue
 
   def reusableQueue(queueFactory: QueueFactory): QueueFactory = reusableQueue(queueFactory())
@@ -118,6 +120,9 @@ final case class ThreadPoolConfigBuilder(config: ThreadPoolConfig) {
   def withNewThreadPoolWithLinkedBlockingQueueWithCapacity(capacity: Int): ThreadPoolConfigBuilder =
     this.copy(config = config.copy(queueFactory = linkedBlockingQueue(capacity)))
 
+  def withNewThreadPoolWithLinkedTransferQueueWithCapacity(capacity: Int): ThreadPoolConfigBuilder =
+    this.copy(config = config.copy(queueFactory = linkedTransferQueue(capacity)))
+
   def withNewThreadPoolWithSynchronousQueueWithFairness(fair: Boolean): ThreadPoolConfigBuilder =
     this.copy(config = config.copy(queueFactory = synchronousQueue(fair)))
 
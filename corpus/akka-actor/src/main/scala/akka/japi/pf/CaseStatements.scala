@@ -4,10 +4,400 @@
 
 package akka.japi.pf
 
-import FI.{ UnitApply, Apply, Predicate }
+import FI.{ UnitApply, Apply, Predicate, TypedPredicate }
+import akka.actor.FSM
+import java.lang.reflect.Modifier
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{ AtomicLong, LongAdder }
+import scala.runtime.AbstractPartialFunction
 
 private[pf] object CaseStatement {
   def empty[F, T](): PartialFunction[F, T] = PartialFunction.empty
+
+  private[this] object Fallback
+  private[this] val fallbackFun = (_: Any) ⇒ Fallback
+
+  /**
+   * A default for `applyOrElse` which lets the caller tell whether the
+   * function was defined at the argument with `fallbackOccurred`, so that
+   * the function's cases are evaluated only once.
+   */
+  def checkFallback[T]: Any ⇒ T = fallbackFun.asInstanceOf[Any ⇒ T]
+
+  def fallbackOccurred(result: Any): Boolean = result.asInstanceOf[AnyRef] eq Fallback
+
+  /**
+   * The class an argument must be an instance of to compare equal to the
+   * given object, for the classes whose `equals` is known to only accept
+   * instances of the same class and to be consistent with `hashCode`,
+   * otherwise null.
+   */
+  def equalsType(o: Any): Class[_] = o match {
+    case _: String | _: java.lang.Integer | _: java.lang.Long | _: java.lang.Short | _: java.lang.Byte |
+      _: java.lang.Character | _: java.lang.Boolean | _: java.lang.Double | _: java.lang.Float ⇒ o.getClass
+    case e: Enum[_] ⇒ e.getDeclaringClass
+    case _ ⇒ null
+  }
+}
+
+/**
+ * Values computed once per class of argument, held only by the partial
+ * function using them. A `ClassValue` would keep its value reachable from the
+ * class for as long as the class is loaded, and with it the partial function,
+ * its cases and whatever their lambdas capture, e.g. the actor.
+ */
+private[pf] final class ClassCache[V <: AnyRef](compute: Class[_] ⇒ V) {
+  private[this] val cache = new ConcurrentHashMap[Class[_], V]
+
+  def get(c: Class[_]): V = {
+    val cached = cache.get(c)
+    if (cached ne null) cached
+    else {
+      val v = compute(c)
+      val raced = cache.putIfAbsent(c, v)
+      if (raced eq null) v else raced
+    }
+  }
+}
+
+/**
+ * A case statement matching the instances of a type which satisfy an optional
+ * predicate. The type test is done here rather than by a [[Predicate]]
+ * wrapping it, which saves an interface call per tried case that is
+ * megamorphic across all the builders' cases, and lets the JIT intrinsify
+ * `Class.isInstance`.
+ */
+private[pf] final class TypedCaseStatement[-F, P, T](`type`: Class[_], predicate: TypedPredicate[P], apply: Apply[P, T])
+  extends PartialFunction[F, T] {
+
+  override def isDefinedAt(o: F) =
+    `type`.isInstance(o) && ((predicate eq null) || predicate.defined(o.asInstanceOf[P]))
+
+  override def apply(o: F) = apply.apply(o.asInstanceOf[P])
+
+  override def applyOrElse[A1 <: F, B1 >: T](o: A1, default: A1 ⇒ B1): B1 =
+    if (isDefinedAt(o)) apply.apply(o.asInstanceOf[P]) else default(o)
+}
+
+/**
+ * The [[UnitCaseStatement]] version of [[TypedCaseStatement]].
+ */
+private[pf] final class TypedUnitCaseStatement[F, P](`type`: Class[_], predicate: TypedPredicate[P], apply: UnitApply[P])
+  extends PartialFunction[F, Unit] {
+
+  override def isDefinedAt(o: F) =
+    `type`.isInstance(o) && ((predicate eq null) || predicate.defined(o.asInstanceOf[P]))
+
+  override def apply(o: F) = apply.apply(o.asInstanceOf[P])
+
+  override def applyOrElse[A1 <: F, B1 >: Unit](o: A1, default: A1 ⇒ B1): B1 =
+    if (isDefinedAt(o)) apply.apply(o.asInstanceOf[P]) else default(o)
+}
+
+/**
+ * Tries the given cases in order, skipping those which cannot match the
+ * argument: for every runtime class of argument the cases whose type admits
+ * its instances (or whose type is null, meaning any argument) are computed
+ * once and cached in a [[ClassCache]]. A case marked in `total` matches every
+ * argument its type admits, i.e. it has no guard, hence the cases after it
+ * are never tried for such arguments and are left out; when the first
+ * candidate is total, the case to apply is thereby resolved once per class.
+ */
+private[pf] final class ClassIndexedStatements[F, T](
+  cases: Array[PartialFunction[F, T]],
+  types: Array[Class[_]],
+  total: Array[Boolean])
+  extends AbstractPartialFunction[F, T] {
+
+  private[this] val nullCandidates = candidatesFor(null)
+
+  private[this] val index = new ClassCache[Array[PartialFunction[F, T]]](candidatesFor)
+
+  private def candidatesFor(c: Class[_]): Array[PartialFunction[F, T]] = {
+    val candidates = Array.newBuilder[PartialFunction[F, T]]
+    var i = 0
+    while (i < cases.length) {
+      val t = types(i)
+      if ((t eq null) || ((c ne null) && t.isAssignableFrom(c))) {
+        candidates += cases(i)
+        if (total(i)) i = cases.length
+      }
+      i += 1
+    }
+    candidates.result()
+  }
+
+  private def candidates(x: F): Array[PartialFunction[F, T]] =
+    if (x.asInstanceOf[AnyRef] eq null) nullCandidates else index.get(x.getClass)
+
+  override def isDefinedAt(x: F): Boolean = {
+    val cs = candidates(x)
+    var i = 0
+    while (i < cs.length) {
+      if (cs(i).isDefinedAt(x)) return true
+      i += 1
+    }
+    false
+  }
+
+  override def applyOrElse[A1 <: F, B1 >: T](x: A1, default: A1 ⇒ B1): B1 = {
+    import CaseStatement.{ checkFallback, fallbackOccurred }
+    val cs = candidates(x)
+    var i = 0
+    while (i < cs.length) {
+      val z = cs(i).applyOrElse(x, checkFallback[T])
+      if (!fallbackOccurred(z)) return z
+      i += 1
+    }
+    default(x)
+  }
+}
+
+private[pf] object ProfiledStatements {
+  /**
+   * The number of applications after which the runs of disjoint cases are
+   * re-sorted by their hit counts; must be a power of 2.
+   */
+  final val ReorderInterval = 1024
+}
+
+/**
+ * Tries the given cases in order while counting how often each of them
+ * matched, see [[CaseStatistics]]. A case which is total (has no guard) and
+ * matches a final class only matches instances of exactly that class, hence
+ * the cases of a run of such cases with distinct classes are disjoint and may
+ * be tried in any order: every `ReorderInterval` applications these runs are
+ * re-sorted so that their most frequently matching cases are tried first.
+ * `labels(i)` describes case `i` in the statistics if it is not null, as
+ * for the matchEquals cases, which are never grouped when profiling.
+ */
+private[pf] final class ProfiledStatements[F, T](
+  cases: Array[PartialFunction[F, T]],
+  types: Array[Class[_]],
+  total: Array[Boolean],
+  labels: Array[String])
+  extends AbstractPartialFunction[F, T] {
+  import ProfiledStatements._
+  import CaseStatement.{ checkFallback, fallbackOccurred }
+
+  private[this] val hits = Array.fill(cases.length)(new LongAdder)
+  private[this] val misses = new LongAdder
+  private[this] val applications = new AtomicLong
+
+  // the positions of the cases in the order they are tried
+  @volatile private[this] var order: Array[Int] = Array.range(0, cases.length)
+
+  private def disjoint(i: Int): Boolean = {
+    val t = types(i)
+    total(i) && (t ne null) && Modifier.isFinal(t.getModifiers) && !t.isArray
+  }
+
+  // the [from, until) ranges of positions of the runs of disjoint cases
+  private[this] val runs: Array[(Int, Int)] = {
+    val b = Array.newBuilder[(Int, Int)]
+    var from = 0
+    while (from < cases.length) {
+      var until = from + 1
+      if (disjoint(from)) {
+        val seen = new java.util.HashSet[Class[_]]
+        seen.add(types(from))
+        while (until < cases.length && disjoint(until) && seen.add(types(until))) until += 1
+      }
+      if (until - from > 1) b += ((from, until))
+      from = until
+    }
+    b.result()
+  }
+
+  private def applied(): Unit =
+    if ((applications.incrementAndGet() & (ReorderInterval - 1)) == 0 && runs.nonEmpty) {
+      val o = order.clone()
+      runs foreach {
+        case (from, until) ⇒ (from until until).sortBy(-hits(_).sum).copyToArray(o, from)
+      }
+      order = o
+    }
+
+  override def isDefinedAt(x: F): Boolean = {
+    val o = order
+    var i = 0
+    while (i < o.length) {
+      if (cases(o(i)).isDefinedAt(x)) return true
+      i += 1
+    }
+    false
+  }
+
+  override def applyOrElse[A1 <: F, B1 >: T](x: A1, default: A1 ⇒ B1): B1 = {
+    val o = order
+    var i = 0
+    while (i < o.length) {
+      val c = o(i)
+      val z = cases(c).applyOrElse(x, checkFallback[T])
+      if (!fallbackOccurred(z)) {
+        hits(c).increment()
+        applied()
+        return z
+      }
+      i += 1
+    }
+    misses.increment()
+    applied()
+    default(x)
+  }
+
+  def statistics(): CaseStatistics = {
+    val caseLabels = Array.tabulate(cases.length) { i ⇒
+      val t = types(i)
+      if (labels(i) ne null) labels(i)
+      else if (t eq null) (if (total(i)) "any" else "unknown")
+      else if (total(i)) t.getName
+      else t.getName + " (guarded)"
+    }
+    new CaseStatistics(caseLabels, hits.map(_.sum), misses.sum, order.clone())
+  }
+}
+
+/**
+ * Tries the given FSM state function cases in order, skipping those which
+ * cannot match the event: the cases are indexed on the runtime class of the
+ * event, where `eventTypes(i)` holds the classes one of which the event must
+ * be an instance of to match case `i` (or null, meaning any event), and then
+ * on the runtime class of the state data, where `dataTypes(i)` holds the class
+ * the data must be an instance of (or null, meaning any data). Both levels are
+ * computed once per class and cached in [[ClassCache]]s.
+ */
+private[pf] final class FSMEventIndexedStatements[D, T](
+  cases: Array[PartialFunction[FSM.Event[D], T]],
+  eventTypes: Array[Array[Class[_]]],
+  dataTypes: Array[Class[_]])
+  extends AbstractPartialFunction[FSM.Event[D], T] {
+
+  private type Case = PartialFunction[FSM.Event[D], T]
+
+  private final class DataIndex(candidates: Array[Int]) {
+    private[this] val nullDataCases = casesFor(null)
+
+    private[this] val index = new ClassCache[Array[Case]](casesFor)
+
+    private def casesFor(c: Class[_]): Array[Case] =
+      candidates.collect { case i if admits(dataTypes(i), c) ⇒ cases(i) }
+
+    def statementsFor(data: Any): Array[Case] =
+      if (data.asInstanceOf[AnyRef] eq null) nullDataCases else index.get(data.getClass)
+  }
+
+  private[this] val nullEventIndex = dataIndexFor(null)
+
+  private[this] val index = new ClassCache[DataIndex](dataIndexFor)
+
+  private def admits(t: Class[_], c: Class[_]): Boolean =
+    (t eq null) || ((c ne null) && t.isAssignableFrom(c))
+
+  private def dataIndexFor(c: Class[_]): DataIndex =
+    new DataIndex(cases.indices.filter { i ⇒
+      (eventTypes(i) eq null) || eventTypes(i).exists(admits(_, c))
+    }.toArray)
+
+  private def candidates(e: FSM.Event[D]): Array[Case] = {
+    val event = e.event.asInstanceOf[AnyRef]
+    val dataIndex = if (event eq null) nullEventIndex else index.get(event.getClass)
+    dataIndex.statementsFor(e.stateData)
+  }
+
+  override def isDefinedAt(e: FSM.Event[D]): Boolean = {
+    val cs = candidates(e)
+    var i = 0
+    while (i < cs.length) {
+      if (cs(i).isDefinedAt(e)) return true
+      i += 1
+    }
+    false
+  }
+
+  override def applyOrElse[A1 <: FSM.Event[D], B1 >: T](e: A1, default: A1 ⇒ B1): B1 = {
+    import CaseStatement.{ checkFallback, fallbackOccurred }
+    val cs = candidates(e)
+    var i = 0
+    while (i < cs.length) {
+      val z = cs(i).applyOrElse(e, checkFallback[T])
+      if (!fallbackOccurred(z)) return z
+      i += 1
+    }
+    default(e)
+  }
+}
+
+/**
+ * Finds the first of the given FSM transition handler cases whose from and to
+ * states, `froms(i)` and `tos(i)` (null meaning any state), match a transition
+ * with at most three hash lookups: one for the cases naming both states, one
+ * for those naming only the from state and one for those naming only the to
+ * state, the first case matching any transition being known up front. The
+ * chosen case still checks the states itself.
+ */
+private[pf] final class TransitionStatements[S](
+  cases: Array[PartialFunction[(S, S), Unit]],
+  froms: Array[AnyRef],
+  tos: Array[AnyRef])
+  extends AbstractPartialFunction[(S, S), Unit] {
+  import java.util.HashMap
+
+  private final val NoCase = Int.MaxValue
+
+  private[this] val byBoth = new HashMap[AnyRef, HashMap[AnyRef, Integer]]
+  private[this] val byFrom = new HashMap[AnyRef, Integer]
+  private[this] val byTo = new HashMap[AnyRef, Integer]
+  private[this] val anyCase: Int = {
+    var first = NoCase
+    // in reverse, so that the first case wins
+    var i = cases.length - 1
+    while (i >= 0) {
+      val from = froms(i)
+      val to = tos(i)
+      if (from eq null) {
+        if (to eq null) first = i
+        else byTo.put(to, i)
+      } else if (to eq null) byFrom.put(from, i)
+      else {
+        val toCases = byBoth.get(from) match {
+          case null ⇒
+            val m = new HashMap[AnyRef, Integer]
+            byBoth.put(from, m)
+            m
+          case m ⇒ m
+        }
+        toCases.put(to, i)
+      }
+      i -= 1
+    }
+    first
+  }
+
+  private def index(m: HashMap[AnyRef, Integer], state: AnyRef): Int = m.get(state) match {
+    case null ⇒ NoCase
+    case i    ⇒ i.intValue
+  }
+
+  private def caseFor(t: (S, S)): Int = {
+    val from = t._1.asInstanceOf[AnyRef]
+    val to = t._2.asInstanceOf[AnyRef]
+    val both = byBoth.get(from) match {
+      case null ⇒ NoCase
+      case m    ⇒ index(m, to)
+    }
+    math.min(math.min(both, anyCase), math.min(index(byFrom, from), index(byTo, to)))
+  }
+
+  override def isDefinedAt(t: (S, S)): Boolean = {
+    val i = caseFor(t)
+    i != NoCase && cases(i).isDefinedAt(t)
+  }
+
+  override def applyOrElse[A1 <: (S, S), B1 >: Unit](t: A1, default: A1 ⇒ B1): B1 = {
+    val i = caseFor(t)
+    if (i == NoCase) default(t) else cases(i).applyOrElse(t, default)
+  }
 }
 
 private[pf] class CaseStatement[-F, +P, T](predicate: Predicate, apply: Apply[P, T])
@@ -16,6 +406,9 @@ private[pf] class CaseStatement[-F, +P, T](predicate: Predicate, apply: Apply[P,
   override def isDefinedAt(o: F) = predicate.defined(o)
 
   override def apply(o: F) = apply.apply(o.asInstanceOf[P])
+
+  override def applyOrElse[A1 <: F, B1 >: T](o: A1, default: A1 ⇒ B1): B1 =
+    if (predicate.defined(o)) apply.apply(o.asInstanceOf[P]) else default(o)
 }
 
 private[pf] class UnitCaseStatement[F, P](predicate: Predicate, apply: UnitApply[P])
@@ -24,4 +417,66 @@ private[pf] class UnitCaseStatement[F, P](predicate: Predicate, apply: UnitApply
   override def isDefinedAt(o: F) = predicate.defined(o)
 
   override def apply(o: F) = apply.apply(o.asInstanceOf[P])
+
+  override def applyOrElse[A1 <: F, B1 >: Unit](o: A1, default: A1 ⇒ B1): B1 =
+    if (predicate.defined(o)) apply.apply(o.asInstanceOf[P]) else default(o)
+}
+
+private[pf] object EqualsStatements {
+  /**
+   * Below this number of statements trying them in order is about as cheap
+   * as hashing the argument.
+   */
+  private final val MinSize = 4
+
+  /**
+   * Combines a run of statements, each matching the arguments equal to the
+   * object at the same position, into one statement. The objects must all
+   * have the [[CaseStatement#equalsType]] `type`, so that looking them up by
+   * hash finds exactly the arguments they compare equal to.
+   */
+  def group[F, T](`type`: Class[_], objects: java.util.List[AnyRef], statements: java.util.List[PartialFunction[F, T]]): PartialFunction[F, T] = {
+    val n = statements.size
+    if (n < MinSize) {
+      var chain = statements.get(0)
+      var i = 1
+      while (i < n) {
+        chain = chain orElse statements.get(i)
+        i += 1
+      }
+      chain
+    } else {
+      val index = new java.util.HashMap[AnyRef, PartialFunction[F, T]](n * 2)
+      var i = 0
+      while (i < n) {
+        if (!index.containsKey(objects.get(i))) index.put(objects.get(i), statements.get(i)) // first one wins
+        i += 1
+      }
+      new EqualsStatements(`type`, index)
+    }
+  }
+}
+
+/**
+ * Looks up the statement for an argument of the given type by its hash code
+ * among statements matching the arguments equal to given objects of that
+ * type. Arguments of other types are not hashed. The statement found still
+ * decides whether it matches, so `equals` is applied just as without the
+ * index.
+ */
+private[pf] final class EqualsStatements[F, T](`type`: Class[_], index: java.util.HashMap[AnyRef, PartialFunction[F, T]])
+  extends AbstractPartialFunction[F, T] {
+
+  private def statementFor(x: F): PartialFunction[F, T] =
+    if (`type`.isInstance(x)) index.get(x) else null
+
+  override def isDefinedAt(x: F): Boolean = {
+    val statement = statementFor(x)
+    (statement ne null) && statement.isDefinedAt(x)
+  }
+
+  override def applyOrElse[A1 <: F, B1 >: T](x: A1, default: A1 ⇒ B1): B1 = {
+    val statement = statementFor(x)
+    if (statement eq null) default(x) else statement.applyOrElse(x, default)
+  }
 }
@@ -459,6 +459,9 @@ private[akka] final class PromiseActorRef private (val provider: ActorRefProvide
   @volatile
   private[this] var _watchedByDoNotCallMeDirectly: Set[ActorRef] = ActorCell.emptyActorRefSet
 
+  // the pending timeout of this ask, set before this ref is published and released when it is stopped
+  private var timeoutEntry: AskTimeouts.Entry = _
+
   @inline
   private[this] def watchedBy: Set[ActorRef] = Unsafe.instance.getObjectVolatile(this, watchedByOffset).asInstanceOf[Set[ActorRef]]
 
@@ -534,6 +537,7 @@ private[akka] final class PromiseActorRef private (val provider: ActorRefProvide
           case Status.Failure(f) ⇒ Failure(f)
           case other ⇒ Success(other)
         }))) provider.deadLetters ! message
+      else stop()
   }
 
   override def sendSystemMessage(message: SystemMessage): Unit = message match {
@@ -560,6 +564,7 @@ private[akka] final class PromiseActorRef private (val provider: ActorRefProvide
   @tailrec
   override def stop(): Unit = {
     def ensureCompleted(): Unit = {
+      if (timeoutEntry ne null) timeoutEntry.release()
       result tryComplete ActorStopResult
       val watchers = clearWatchers()
       if (!watchers.isEmpty) {
@@ -591,16 +596,16 @@ private[akka] object PromiseActorRef {
 
   private val ActorStopResult = Failure(ActorKilledException("Stopped"))
 
+  /**
+   * Creates the ref and registers its timeout. The ref stops itself when it
+   * completes its promise on receiving the reply or on timing out; whoever
+   * completes the promise otherwise must stop the ref, see [[AskPromiseRef]].
+   */
   def apply(provider: ActorRefProvider, timeout: Timeout, targetName: Any, messageClassName: String, sender: ActorRef = Actor.noSender): PromiseActorRef = {
     val result = Promise[Any]()
-    val scheduler = provider.guardian.underlying.system.scheduler
     val a = new PromiseActorRef(provider, result, messageClassName)
-    implicit val ec = a.internalCallingThreadExecutionContext
-    val f = scheduler.scheduleOnce(timeout.duration) {
-      result tryComplete Failure(
-        new AskTimeoutException(s"""Ask timed out on [$targetName] after [${timeout.duration.toMillis} ms]. Sender[$sender] sent message of type "${a.messageClassName}"."""))
-    }
-    result.future onComplete { _ ⇒ try a.stop() finally f.cancel() }
+    a.timeoutEntry = new AskTimeouts.Entry(a, targetName, sender, timeout)
+    provider.guardian.underlying.systemImpl.askTimeouts.add(a.timeoutEntry, timeout.duration)
     a
   }
 
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+package akka.pattern
+
+import java.util.concurrent.atomic.{ AtomicReference, AtomicReferenceArray }
+
+import akka.actor._
+import akka.util.Timeout
+
+import scala.annotation.tailrec
+import scala.concurrent.ExecutionContext
+import scala.concurrent.duration._
+import scala.util.Failure
+
+/**
+ * INTERNAL API
+ */
+private[akka] object AskTimeouts {
+  /**
+   * The number of deadlines whose buckets are remembered, must be a power of two.
+   */
+  private final val Slots = 4096
+
+  /**
+   * The pending timeout of the ask answered by a [[PromiseActorRef]], which
+   * is linked into the bucket of its deadline. The ref releases it when it is
+   * stopped, so that a completed ask is not retained until its deadline.
+   */
+  final class Entry(ref: PromiseActorRef, targetName: Any, sender: ActorRef, timeout: Timeout) {
+    @volatile private[this] var _ref = ref
+    private[AskTimeouts] var next: Entry = _
+
+    def release(): Unit = _ref = null
+
+    private[AskTimeouts] def expire(): Unit = {
+      val r = _ref
+      if (r ne null) {
+        if (!r.result.isCompleted)
+          r.result tryComplete Failure(
+            new AskTimeoutException(s"""Ask timed out on [$targetName] after [${timeout.duration.toMillis} ms]. Sender[$sender] sent message of type "${r.messageClassName}"."""))
+        r.stop()
+      }
+    }
+  }
+
+  private val Expired = new Entry(null, null, null, null)
+
+  /**
+   * The entries expiring at the same tick, pushed onto a lock-free stack
+   * which is closed when the bucket expires.
+   */
+  private final class Bucket(val deadline: Long) extends AtomicReference[Entry] with Runnable {
+
+    @tailrec def add(entry: Entry): Boolean = {
+      val head = get
+      if (head eq Expired) false
+      else {
+        entry.next = head
+        compareAndSet(head, entry) || add(entry)
+      }
+    }
+
+    override def run(): Unit = {
+      var entry = getAndSet(Expired)
+      while (entry ne null) {
+        entry.expire()
+        entry = entry.next
+      }
+    }
+  }
+}
+
+/**
+ * INTERNAL API
+ *
+ * Expires the asks of an actor system in batches: the deadline of an ask is
+ * rounded up to the resolution of the scheduler, and all asks expiring at the
+ * same tick share one bucket and thus one scheduled task, instead of each ask
+ * scheduling and cancelling its own. There is one instance per actor system,
+ * see `ActorSystemImpl.askTimeouts`.
+ */
+private[akka] final class AskTimeouts(scheduler: Scheduler, ec: ExecutionContext) {
+  import AskTimeouts._
+
+  private val tickNanos = math.max(1.milli.toNanos, (1.second.toNanos / scheduler.maxFrequency).toLong)
+
+  private val buckets = new AtomicReferenceArray[Bucket](Slots)
+
+  /**
+   * Registers the timeout of an ask, which expires at most two ticks of the
+   * scheduler after the given duration.
+   *
+   * @throws IllegalArgumentException if the scheduler cannot reach the deadline
+   */
+  def add(entry: Entry, timeout: FiniteDuration): Unit = {
+    val now = System.nanoTime
+    val nowTick = now / tickNanos
+    // the first tick after the deadline, or the one after it
+    val deadline = nowTick + timeout.toNanos / tickNanos + 2
+    val slot = (deadline & (Slots - 1)).toInt
+    val b = buckets.get(slot)
+    if ((b eq null) || b.deadline != deadline || !b.add(entry)) {
+      val n = new Bucket(deadline)
+      n.add(entry)
+      scheduler.scheduleOnce(((deadline - nowTick) * tickNanos - now % tickNanos).nanos, n)(ec)
+      buckets.compareAndSet(slot, b, n)
+    }
+  }
+}
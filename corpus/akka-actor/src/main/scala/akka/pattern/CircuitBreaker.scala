@@ -4,7 +4,7 @@
 package akka.pattern
 
 import java.util.Optional
-import java.util.concurrent.atomic.{ AtomicBoolean, AtomicInteger, AtomicLong }
+import java.util.concurrent.atomic.{ AtomicBoolean, AtomicInteger, AtomicLong, AtomicReferenceArray, LongAdder }
 import java.util.function.Consumer
 
 import akka.AkkaException
@@ -22,6 +22,7 @@ import scala.util.control.NonFatal
 import scala.util.{ Failure, Success, Try }
 import akka.dispatch.ExecutionContexts.sameThreadExecutionContext
 
+import scala.annotation.tailrec
 import scala.compat.java8.FutureConverters
 
 /**
@@ -81,6 +82,110 @@ object CircuitBreaker {
     }
     failureFnInScala
   }
+
+  /**
+   * INTERNAL API
+   *
+   * Settings of the failure-rate mode, see [[CircuitBreaker#withFailureRate]].
+   * A `slowCallNanos` of `Long.MaxValue` disables the slow-call rate.
+   */
+  private[akka] final case class FailureRateSettings(
+    failureRateThreshold: Double,
+    slowCallRateThreshold: Double,
+    slowCallNanos: Long,
+    windowNanos: Long,
+    windowBuckets: Int,
+    minimumCalls: Int) {
+    require(failureRateThreshold > 0.0 && failureRateThreshold <= 1.0, "failureRateThreshold must be in (0, 1]")
+    require(slowCallRateThreshold > 0.0 && slowCallRateThreshold <= 1.0, "slowCallRateThreshold must be in (0, 1]")
+    require(slowCallNanos >= 0L, "slowCallDuration must not be negative")
+    require(windowBuckets > 0, "windowBuckets must be > 0")
+    require(windowNanos >= windowBuckets, "windowSize must be at least windowBuckets nanoseconds")
+    require(minimumCalls > 0, "minimumCalls must be > 0")
+  }
+
+  /**
+   * The number of calls, failed calls and slow calls in one period of a
+   * [[SlidingWindow]]. The counters are striped, so that concurrent callers
+   * do not contend on one word.
+   */
+  private final class WindowBucket(val epoch: Long) {
+    val calls = new LongAdder
+    val failures = new LongAdder
+    val slowCalls = new LongAdder
+  }
+
+  /**
+   * The calls of the last `windowNanos`, counted in a ring of `windowBuckets`
+   * buckets which are replaced as time advances.
+   */
+  private final class SlidingWindow(settings: FailureRateSettings) {
+    import settings.{ failureRateThreshold, slowCallRateThreshold, slowCallNanos, windowNanos, windowBuckets, minimumCalls }
+
+    private[this] val bucketNanos = windowNanos / windowBuckets
+    private[this] val ring = new AtomicReferenceArray[WindowBucket](windowBuckets)
+
+    /**
+     * The time until which the rates are not computed again, as they are
+     * computed from all buckets.
+     */
+    @volatile private[this] var nextEvaluation = System.nanoTime()
+
+    @tailrec private def bucket(epoch: Long): WindowBucket = {
+      val slot = java.lang.Math.floorMod(epoch, windowBuckets.toLong).toInt
+      val b = ring.get(slot)
+      if ((b ne null) && b.epoch >= epoch) b
+      else {
+        val n = new WindowBucket(epoch)
+        if (ring.compareAndSet(slot, b, n)) n else bucket(epoch)
+      }
+    }
+
+    /**
+     * Counts a call which took `elapsedNanos`.
+     *
+     * @return whether the failure rate or the slow-call rate has reached its threshold
+     */
+    def record(failed: Boolean, elapsedNanos: Long): Boolean = {
+      val now = System.nanoTime()
+      val epoch = now / bucketNanos
+      val b = bucket(epoch)
+      val slow = elapsedNanos >= slowCallNanos
+      b.calls.increment()
+      if (failed) b.failures.increment()
+      if (slow) b.slowCalls.increment()
+      (failed || slow) && now - nextEvaluation >= 0L && exceeded(now, epoch)
+    }
+
+    private def exceeded(now: Long, epoch: Long): Boolean = {
+      nextEvaluation = now + math.min(bucketNanos, SlidingWindow.EvaluationIntervalNanos)
+      var calls, failures, slowCalls = 0L
+      var i = 0
+      while (i < windowBuckets) {
+        val b = ring.get(i)
+        if ((b ne null) && epoch - b.epoch < windowBuckets) {
+          calls += b.calls.sum()
+          failures += b.failures.sum()
+          slowCalls += b.slowCalls.sum()
+        }
+        i += 1
+      }
+      calls >= minimumCalls &&
+        (failures >= failureRateThreshold * calls || slowCalls >= slowCallRateThreshold * calls)
+    }
+
+    def reset(): Unit = {
+      var i = 0
+      while (i < windowBuckets) {
+        ring.set(i, null)
+        i += 1
+      }
+    }
+  }
+
+  private object SlidingWindow {
+    final val EvaluationIntervalNanos = 1000000L
+  }
 }
 
 /**
@@ -89,7 +194,9 @@ object CircuitBreaker {
  *
  * Transitions through three states:
  * - In *Closed* state, calls pass through until the `maxFailures` count is reached.  This causes the circuit breaker
- * to open.  Both exceptions and calls exceeding `callTimeout` are considered failures.
+ * to open.  Both exceptions and calls exceeding `callTimeout` are considered failures.  In failure-rate mode, see
+ * [[#withFailureRate]], the circuit opens instead when the rate of failed or slow calls within a sliding time window
+ * reaches a threshold.
  * - In *Open* state, calls fail-fast with an exception.  After `resetTimeout`, circuit breaker transitions to
  * half-open state.
  * - In *Half-Open* state, the first call will be allowed through, if it succeeds the circuit breaker will reset to
@@ -102,16 +209,28 @@ object CircuitBreaker {
  * @param resetTimeout [[scala.concurrent.duration.FiniteDuration]] of time after which to attempt to close the circuit
  * @param executor [[scala.concurrent.ExecutionContext]] used for execution of state transition listeners
  */
-class CircuitBreaker(
+class CircuitBreaker private[akka] (
   scheduler: Scheduler,
   maxFailures: Int,
   callTimeout: FiniteDuration,
   val resetTimeout: FiniteDuration,
   maxResetTimeout: FiniteDuration,
-  exponentialBackoffFactor: Double)(implicit executor: ExecutionContext) extends AbstractCircuitBreaker {
+  exponentialBackoffFactor: Double,
+  failureRate: CircuitBreaker.FailureRateSettings)(implicit executor: ExecutionContext) extends AbstractCircuitBreaker {
 
   require(exponentialBackoffFactor >= 1.0, "factor must be >= 1.0")
 
+  // add the old primary constructor to make it binary compatible
+  def this(
+    scheduler: Scheduler,
+    maxFailures: Int,
+    callTimeout: FiniteDuration,
+    resetTimeout: FiniteDuration,
+    maxResetTimeout: FiniteDuration,
+    exponentialBackoffFactor: Double)(implicit executor: ExecutionContext) = {
+    this(scheduler, maxFailures, callTimeout, resetTimeout, maxResetTimeout, exponentialBackoffFactor, null)(executor)
+  }
+
   def this(executor: ExecutionContext, scheduler: Scheduler, maxFailures: Int, callTimeout: FiniteDuration, resetTimeout: FiniteDuration) = {
     this(scheduler, maxFailures, callTimeout, resetTimeout, 36500.days, 1.0)(executor)
   }
@@ -128,9 +247,53 @@ class CircuitBreaker(
    * @param maxResetTimeout the upper bound of resetTimeout
    */
   def withExponentialBackoff(maxResetTimeout: FiniteDuration): CircuitBreaker = {
-    new CircuitBreaker(scheduler, maxFailures, callTimeout, resetTimeout, maxResetTimeout, 2.0)(executor)
+    new CircuitBreaker(scheduler, maxFailures, callTimeout, resetTimeout, maxResetTimeout, 2.0, failureRate)(executor)
   }
 
+  /**
+   * Opens the circuit by the rate of failed calls and of slow calls within a sliding time window instead of by the
+   * number of consecutive failures; `maxFailures` is then not used. The window is divided into `windowBuckets`
+   * periods which are discarded as time advances, and the rates are only considered once the window holds at least
+   * `minimumCalls` calls, so that a few failures under low traffic do not open the circuit.
+   *
+   * @param failureRateThreshold the fraction of failed calls, in (0, 1], at which the circuit opens
+   * @param slowCallRateThreshold the fraction of slow calls, in (0, 1], at which the circuit opens
+   * @param slowCallDuration calls taking at least this long count as slow calls, whether they fail or not
+   * @param windowSize the duration of the sliding window
+   * @param windowBuckets the number of periods the window is divided into
+   * @param minimumCalls the number of calls within the window below which the circuit does not open
+   */
+  def withFailureRate(
+    failureRateThreshold: Double,
+    slowCallRateThreshold: Double,
+    slowCallDuration: FiniteDuration,
+    windowSize: FiniteDuration,
+    windowBuckets: Int,
+    minimumCalls: Int): CircuitBreaker = {
+    val settings = CircuitBreaker.FailureRateSettings(failureRateThreshold, slowCallRateThreshold,
+      slowCallDuration.toNanos, windowSize.toNanos, windowBuckets, minimumCalls)
+    new CircuitBreaker(scheduler, maxFailures, callTimeout, resetTimeout, maxResetTimeout, exponentialBackoffFactor, settings)(executor)
+  }
+
+  /**
+   * Opens the circuit by the rate of failed calls within a sliding time window of 10 periods, without considering
+   * slow calls. See [[#withFailureRate]].
+   *
+   * @param failureRateThreshold the fraction of failed calls, in (0, 1], at which the circuit opens
+   * @param windowSize the duration of the sliding window
+   * @param minimumCalls the number of calls within the window below which the circuit does not open
+   */
+  def withFailureRate(failureRateThreshold: Double, windowSize: FiniteDuration, minimumCalls: Int): CircuitBreaker = {
+    val settings = CircuitBreaker.FailureRateSettings(failureRateThreshold, 1.0, Long.MaxValue, windowSize.toNanos, 10, minimumCalls)
+    new CircuitBreaker(scheduler, maxFailures, callTimeout, resetTimeout, maxResetTimeout, exponentialBackoffFactor, settings)(executor)
+  }
+
+  /**
+   * The calls counted in failure-rate mode, or null
+   */
+  private[this] val slidingWindow: CircuitBreaker.SlidingWindow =
+    if (failureRate eq null) null else new CircuitBreaker.SlidingWindow(failureRate)
+
   /**
    * Holds reference to current state of CircuitBreaker - *access only via helper methods*
    */
@@ -691,10 +854,10 @@ class CircuitBreaker(
         f.onComplete {
           case s: Success[_] ⇒
             notifyCallSuccessListeners(start)
-            callSucceeds()
+            callSucceeds(System.nanoTime() - start)
           case Failure(ex) ⇒
             notifyCallFailureListeners(start)
-            callFails()
+            callFails(System.nanoTime() - start)
         }
 
         f
@@ -706,10 +869,10 @@ class CircuitBreaker(
 
         p.future.onComplete { fResult ⇒
           if (defineFailureFn(fResult)) {
-            callFails()
+            callFails(System.nanoTime() - start)
           } else {
             notifyCallSuccessListeners(start)
-            callSucceeds()
+            callSucceeds(System.nanoTime() - start)
           }
         }
 
@@ -771,6 +934,20 @@ class CircuitBreaker(
      */
     def callFails(): Unit
 
+    /**
+     * Invoked when call succeeds, with the time the call took
+     *
+     * @param elapsedNanos time in nanoseconds since the call was invoked
+     */
+    def callSucceeds(elapsedNanos: Long): Unit = callSucceeds()
+
+    /**
+     * Invoked when call fails, with the time the call took
+     *
+     * @param elapsedNanos time in nanoseconds since the call was invoked
+     */
+    def callFails(elapsedNanos: Long): Unit = callFails()
+
     /**
      * Invoked on the transitioned-to state during transition.  Notifies listeners after invoking subclass template
      * method _enter
@@ -807,7 +984,17 @@ class CircuitBreaker(
      *
      * @return
      */
-    override def callSucceeds(): Unit = set(0)
+    override def callSucceeds(): Unit = callSucceeds(0L)
+
+    /**
+     * On successful call, the failure count is reset to 0, or in failure-rate mode the call is counted and the
+     * breaker is tripped if the call was slow and the slow-call rate has reached its threshold.
+     *
+     * @return
+     */
+    override def callSucceeds(elapsedNanos: Long): Unit =
+      if (slidingWindow eq null) set(0)
+      else if (slidingWindow.record(failed = false, elapsedNanos)) tripBreaker(Closed)
 
     /**
      * On failed call, the failure count is incremented.  The count is checked against the configured maxFailures, and
@@ -815,15 +1002,27 @@ class CircuitBreaker(
      *
      * @return
      */
-    override def callFails(): Unit = if (incrementAndGet() == maxFailures) tripBreaker(Closed)
+    override def callFails(): Unit = callFails(0L)
+
+    /**
+     * On failed call, the failure count is incremented and checked against maxFailures, or in failure-rate mode the
+     * call is counted and the breaker is tripped if a rate has reached its threshold.
+     *
+     * @return
+     */
+    override def callFails(elapsedNanos: Long): Unit =
+      if (slidingWindow eq null) {
+        if (incrementAndGet() == maxFailures) tripBreaker(Closed)
+      } else if (slidingWindow.record(failed = true, elapsedNanos)) tripBreaker(Closed)
 
     /**
-     * On entry of this state, failure count and resetTimeout is reset.
+     * On entry of this state, failure count, sliding window and resetTimeout is reset.
      *
      * @return
      */
     override def _enter(): Unit = {
       set(0)
+      if (slidingWindow ne null) slidingWindow.reset()
       swapResetTimeout(currentResetTimeout, resetTimeout)
     }
 
@@ -150,6 +150,8 @@ private[akka] object AskPromiseRef {
   def apply(provider: ActorRefProvider, timeout: Timeout): AskPromiseRef = {
     if (timeout.duration.length > 0) {
       val promiseActorRef = PromiseActorRef(provider, timeout, "unknown", "unknown", provider.deadLetters)
+      // the promise is exposed and may be completed without a reply
+      promiseActorRef.result.future.onComplete(_ ⇒ promiseActorRef.stop())(promiseActorRef.internalCallingThreadExecutionContext)
       new AskPromiseRef(promiseActorRef)
     } else {
       throw new IllegalArgumentException(s"Timeout length must not be negative, was: $timeout")
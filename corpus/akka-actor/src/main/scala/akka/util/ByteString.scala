@@ -247,6 +247,9 @@ object ByteString {
       buffer.putByteArrayUnsafe(bytes)
     }
 
+    private[akka] def hashInto(hasher: Unsafe.FastHasher): Unit =
+      hasher.update(bytes, 0, bytes.length)
+
   }
 
   /** INTERNAL API: ByteString backed by exactly one array, with start / end markers */
@@ -289,6 +292,9 @@ object ByteString {
       os.write(bytes, startIndex, length)
     }
 
+    private[akka] def hashInto(hasher: Unsafe.FastHasher): Unit =
+      hasher.update(bytes, startIndex, length)
+
     def isCompact: Boolean = (length == bytes.length)
 
     private[akka] def byteStringCompanion = ByteString1
@@ -512,6 +518,9 @@ object ByteString {
       bytestrings.foreach(_.writeToOutputStream(os))
     }
 
+    private[akka] def hashInto(hasher: Unsafe.FastHasher): Unit =
+      bytestrings.foreach(_.hashInto(hasher))
+
     override def take(n: Int): ByteString =
       if (n <= 0) ByteString.empty
       else if (n >= length) this
@@ -725,6 +734,12 @@ sealed abstract class ByteString extends IndexedSeq[Byte] with IndexedSeqOptimiz
 
   private[akka] def writeToOutputStream(os: ObjectOutputStream): Unit
 
+  /**
+   * INTERNAL API: Feeds the bytes of this ByteString to the given hasher, see
+   * [[Unsafe#fastHash(ByteString)]].
+   */
+  private[akka] def hashInto(hasher: Unsafe.FastHasher): Unit
+
   /**
    * Efficiently concatenate another ByteString.
    */
@@ -30,6 +30,8 @@ import akka.japi.{ Pair ⇒ JPair }
   def javaAnyToNone[A, B]: A ⇒ Option[B] = none
   def nullFun[T] = _nullFun.asInstanceOf[Any ⇒ T]
 
+  def scalaAnyToUnit[A]: A ⇒ Unit = unit
+
   val zeroLong = (_: Any) ⇒ 0L
 
   val oneLong = (_: Any) ⇒ 1L
@@ -38,6 +40,8 @@ import akka.japi.{ Pair ⇒ JPair }
 
   private val _nullFun = (_: Any) ⇒ null
 
+  private val unit = (_: Any) ⇒ ()
+
   private val conforms = (a: Any) ⇒ a
 
   private val none = (_: Any) ⇒ None
@@ -3,7 +3,15 @@
  */
 package akka.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
 import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
 import java.util.Arrays;
 
 /**
@@ -55,39 +63,348 @@ public final class Unsafe {
         }
     }
 
-    public static int fastHash(String str) {
-        long s0 = 391408;
-        long s1 = 601258;
+    private static final long byteArrayBaseOffset = instance.arrayBaseOffset(byte[].class);
+    private static final long charArrayBaseOffset = instance.arrayBaseOffset(char[].class);
+    private static final boolean isBigEndian = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    // whether the platform reads and writes words at any address, like java.nio.Bits.unaligned()
+    private static final boolean unalignedAccess = Arrays.
+        asList("i386", "x86", "amd64", "x86_64", "ppc64", "ppc64le", "s390x", "aarch64").
+        contains(System.getProperty("os.arch", ""));
+
+    /**
+     * Writes the given US-ASCII string into the given heap or direct buffer
+     * starting at the given index, without changing the buffer's position,
+     * and returns the number of bytes written.
+     */
+    public static int copyUSAsciiStrToBuffer(String str, ByteBuffer buffer, int index) {
+        final int length = str.length();
+        writeToBuffer(str, length, buffer, index, Unsafe::copyUSAsciiStr);
+        return length;
+    }
+
+    private static void copyUSAsciiStr(String str, Object target, long address, int length) {
+        if (isJavaVersion9Plus) {
+            final byte[] chars = (byte[]) instance.getObject(str, stringValueFieldOffset);
+            instance.copyMemory(chars, byteArrayBaseOffset, target, address, length);
+        } else {
+            final char[] chars = (char[]) instance.getObject(str, stringValueFieldOffset);
+            for (int i = 0; i < length; i++)
+                instance.putByte(target, address + i, (byte) chars[i]);
+        }
+    }
+
+    /**
+     * The number of bytes of the UTF-8 encoding of the given string, in which
+     * unpaired surrogates are replaced by '?' like in {@link String#getBytes}.
+     */
+    public static int utf8Length(String str) {
+        if (isJavaVersion9Plus) {
+            final byte[] chars = (byte[]) instance.getObject(str, stringValueFieldOffset);
+            if (chars.length == str.length()) // Latin-1: one byte per character
+                return chars.length + countNonAscii(chars);
+        }
+        final int n = str.length();
+        int length = n;
+        for (int i = 0; i < n; i++) {
+            final char c = str.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) length += 1;
+                else if (!Character.isSurrogate(c)) length += 2;
+                else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    length += 2; // four bytes for two chars
+                    i += 1;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static int countNonAscii(byte[] chars) {
+        int count = 0;
         int i = 0;
+        for (; i + 8 <= chars.length; i += 8)
+            count += Long.bitCount(FastHasher.word(chars, byteArrayBaseOffset + i) & 0x8080808080808080L);
+        for (; i < chars.length; i++)
+            if (chars[i] < 0) count += 1;
+        return count;
+    }
 
+    /**
+     * Writes the UTF-8 encoding of the given string, see {@link #utf8Length},
+     * into the given heap or direct buffer starting at the given index, without
+     * changing the buffer's position, and returns the number of bytes written.
+     * Strings of ASCII characters are copied from their backing array in one
+     * go on Java 9+.
+     */
+    public static int encodeUtf8(String str, ByteBuffer buffer, int index) {
+        final int length = utf8Length(str);
+        writeToBuffer(str, length, buffer, index, Unsafe::encodeUtf8);
+        return length;
+    }
+
+    private static void encodeUtf8(String str, Object target, long address, int length) {
+        long p = address;
         if (isJavaVersion9Plus) {
             final byte[] chars = (byte[]) instance.getObject(str, stringValueFieldOffset);
-            while (i < chars.length) {
-                long x = s0 ^ (long)chars[i++]; // Mix character into PRNG state
-                long y = s1;
-
-                // Xorshift128+ round
-                s0 = y;
-                x ^= x << 23;
-                y ^= y >>> 26;
-                x ^= x >>> 17;
-                s1 = x ^ y;
+            if (chars.length == str.length()) { // Latin-1
+                if (length == chars.length)
+                    instance.copyMemory(chars, byteArrayBaseOffset, target, address, length);
+                else
+                    for (byte b : chars) {
+                        if (b >= 0) instance.putByte(target, p++, b);
+                        else {
+                            instance.putByte(target, p++, (byte) (0xC0 | ((b & 0xFF) >>> 6)));
+                            instance.putByte(target, p++, (byte) (0x80 | (b & 0x3F)));
+                        }
+                    }
+                return;
             }
+        }
+        final int n = str.length();
+        for (int i = 0; i < n; i++) {
+            final char c = str.charAt(i);
+            if (c < 0x80)
+                instance.putByte(target, p++, (byte) c);
+            else if (c < 0x800) {
+                instance.putByte(target, p++, (byte) (0xC0 | (c >>> 6)));
+                instance.putByte(target, p++, (byte) (0x80 | (c & 0x3F)));
+            } else if (!Character.isSurrogate(c)) {
+                instance.putByte(target, p++, (byte) (0xE0 | (c >>> 12)));
+                instance.putByte(target, p++, (byte) (0x80 | ((c >>> 6) & 0x3F)));
+                instance.putByte(target, p++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, str.charAt(++i));
+                instance.putByte(target, p++, (byte) (0xF0 | (cp >>> 18)));
+                instance.putByte(target, p++, (byte) (0x80 | ((cp >>> 12) & 0x3F)));
+                instance.putByte(target, p++, (byte) (0x80 | ((cp >>> 6) & 0x3F)));
+                instance.putByte(target, p++, (byte) (0x80 | (cp & 0x3F)));
+            } else
+                instance.putByte(target, p++, (byte) '?');
+        }
+    }
+
+    // writes the given number of bytes for a string to the memory at an address relative to an array or to null
+    private interface Writer {
+        void write(String str, Object target, long address, int length);
+    }
+
+    private static void writeToBuffer(String str, int length, ByteBuffer buffer, int index, Writer writer) {
+        if (buffer.isReadOnly()) throw new ReadOnlyBufferException();
+        if (index < 0 || index > buffer.limit() - length)
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length + ", limit " + buffer.limit());
+        if (!buffer.isDirect())
+            writer.write(str, buffer.array(), byteArrayBaseOffset + buffer.arrayOffset() + index, length);
+        else if (DirectBuffers.addressFieldOffset >= 0) {
+            writer.write(str, null, instance.getLong(buffer, DirectBuffers.addressFieldOffset) + index, length);
+            DirectBuffers.keepAlive(buffer);
+        } else {
+            final byte[] bytes = new byte[length];
+            writer.write(str, bytes, byteArrayBaseOffset, length);
+            final ByteBuffer target = buffer.duplicate();
+            ((Buffer) target).position(index);
+            target.put(bytes);
+        }
+    }
+
+    /**
+     * Access to the memory of direct buffers, which is resolved on first use
+     * since it relies on JDK internals: if the private field `Buffer.address`
+     * cannot be accessed, direct buffers are written with `ByteBuffer.put`.
+     */
+    private static final class DirectBuffers {
+        static final long addressFieldOffset;
+        // Reference.reachabilityFence on Java 9+, null before
+        private static final MethodHandle reachabilityFence;
+
+        static {
+            long offset;
+            try {
+                offset = instance.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+            } catch (Throwable t) {
+                offset = -1;
+            }
+            addressFieldOffset = offset;
+            MethodHandle fence;
+            try {
+                fence = MethodHandles.publicLookup().findStatic(Reference.class, "reachabilityFence",
+                    MethodType.methodType(void.class, Object.class));
+            } catch (Throwable t) {
+                fence = null;
+            }
+            reachabilityFence = fence;
+        }
+
+        /**
+         * Keeps the buffer reachable until here, so that its memory is not
+         * freed while it is written through its raw address.
+         */
+        static void keepAlive(ByteBuffer buffer) {
+            if (reachabilityFence != null) {
+                try {
+                    reachabilityFence.invokeExact((Object) buffer);
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            } else
+                synchronized (buffer) {
+                    // holding the monitor keeps the buffer reachable before Java 9
+                }
+        }
+    }
+
+    /**
+     * Hashes the characters of the given string, see {@link FastHasher}; for
+     * strings of Latin-1 characters on Java 9+ this equals the hash of their
+     * ISO-8859-1 encoding.
+     */
+    public static int fastHash(String str) {
+        if (isJavaVersion9Plus) {
+            final byte[] chars = (byte[]) instance.getObject(str, stringValueFieldOffset);
+            return new FastHasher().update(chars, byteArrayBaseOffset, chars.length).hash();
         } else {
             final char[] chars = (char[]) instance.getObject(str, stringValueFieldOffset);
-            while (i < chars.length) {
-                long x = s0 ^ (long)chars[i++]; // Mix character into PRNG state
-                long y = s1;
-
-                // Xorshift128+ round
-                s0 = y;
-                x ^= x << 23;
-                y ^= y >>> 26;
-                x ^= x >>> 17;
-                s1 = x ^ y;
+            return new FastHasher().update(chars, charArrayBaseOffset, chars.length * 2L).hash();
+        }
+    }
+
+    public static int fastHash(byte[] bytes) {
+        return new FastHasher().update(bytes, 0, bytes.length).hash();
+    }
+
+    public static int fastHash(byte[] bytes, int offset, int length) {
+        return new FastHasher().update(bytes, offset, length).hash();
+    }
+
+    /**
+     * Hashes the bytes of the given ByteString, without copying them; equals
+     * the hash of the byte array with the same contents.
+     */
+    public static int fastHash(ByteString bytes) {
+        final FastHasher hasher = new FastHasher();
+        bytes.hashInto(hasher);
+        return hasher.hash();
+    }
+
+    /**
+     * Computes the hash of a sequence of bytes which may be given in several
+     * slices, e.g. the fragments of a ByteString, as if they were given in one.
+     *
+     * The bytes are read eight at a time and the words are mixed into four
+     * independent lanes in turn, so that the rounds of consecutive words do not
+     * wait for each other; the lanes, the length and the bytes of a trailing
+     * incomplete word are combined in {@link #hash()}. The hash is meant for
+     * in-memory tables only: it depends on the JVM version for strings and may
+     * change between releases, so it must not be persisted or sent to other
+     * nodes.
+     */
+    public static final class FastHasher {
+        private static final long P1 = 0x9E3779B185EBCA87L;
+        private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+        private static final long P3 = 0x165667B19E3779F9L;
+
+        private long l0 = P1 + P2;
+        private long l1 = P2;
+        private long l2 = 0L;
+        private long l3 = -P1;
+        private long words = 0L;  // the number of complete words mixed into the lanes
+        private long tail = 0L;   // the bytes of an incomplete word, little-endian
+        private int tailBytes = 0;
+        private long length = 0L;
+
+        public FastHasher update(byte[] bytes, int offset, int length) {
+            if (offset < 0 || length < 0 || offset > bytes.length - length)
+                throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+            return update(bytes, byteArrayBaseOffset + offset, length);
+        }
+
+        private FastHasher update(Object array, long address, long n) {
+            final long end = address + n;
+            length += n;
+            while (tailBytes != 0 && address < end)
+                addTailByte(instance.getByte(array, address++));
+            // now either all bytes are consumed or no incomplete word is pending
+            while ((words & 3) != 0 && end - address >= 8) {
+                addWord(word(array, address));
+                address += 8;
+            }
+            if (end - address >= 32) {
+                long v0 = l0, v1 = l1, v2 = l2, v3 = l3;
+                long w = words;
+                do {
+                    v0 = round(v0, word(array, address));
+                    v1 = round(v1, word(array, address + 8));
+                    v2 = round(v2, word(array, address + 16));
+                    v3 = round(v3, word(array, address + 24));
+                    address += 32;
+                    w += 4;
+                } while (end - address >= 32);
+                l0 = v0;
+                l1 = v1;
+                l2 = v2;
+                l3 = v3;
+                words = w;
+            }
+            while (end - address >= 8) {
+                addWord(word(array, address));
+                address += 8;
+            }
+            while (address < end)
+                addTailByte(instance.getByte(array, address++));
+            return this;
+        }
+
+        // the eight bytes at the given address as a little-endian word
+        private static long word(Object array, long address) {
+            if (unalignedAccess || (address & 7) == 0) {
+                final long k = instance.getLong(array, address);
+                return isBigEndian ? Long.reverseBytes(k) : k;
+            } else {
+                long k = 0L;
+                for (int i = 7; i >= 0; i--)
+                    k = (k << 8) | (instance.getByte(array, address + i) & 0xFFL);
+                return k;
             }
         }
 
-        return (int)(s0 + s1);
+        private static long round(long lane, long k) {
+            return Long.rotateLeft(lane + k * P2, 31) * P1;
+        }
+
+        private void addWord(long k) {
+            switch ((int) words & 3) {
+                case 0: l0 = round(l0, k); break;
+                case 1: l1 = round(l1, k); break;
+                case 2: l2 = round(l2, k); break;
+                default: l3 = round(l3, k);
+            }
+            words += 1;
+        }
+
+        private void addTailByte(byte b) {
+            tail |= (b & 0xFFL) << (tailBytes << 3);
+            if (++tailBytes == 8) {
+                addWord(tail);
+                tail = 0L;
+                tailBytes = 0;
+            }
+        }
+
+        /**
+         * The hash of the bytes given so far; more may be added afterwards.
+         */
+        public int hash() {
+            long h = Long.rotateLeft(l0, 1) + Long.rotateLeft(l1, 7) + Long.rotateLeft(l2, 12) + Long.rotateLeft(l3, 18);
+            h += length;
+            if (tailBytes != 0)
+                h = Long.rotateLeft(h ^ round(0L, tail), 27) * P1 + P3;
+            // MurmurHash3 finalizer
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return (int) h;
+        }
     }
 }
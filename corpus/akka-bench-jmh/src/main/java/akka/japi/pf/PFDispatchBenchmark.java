@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.japi.pf;
+
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.AbstractActor.Receive;
+import akka.actor.FSM;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import scala.PartialFunction;
+import scala.runtime.AbstractFunction1;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Measures the cost of dispatching one message through the partial functions
+ * built by the Java DSL, for type-based, matchEquals and guarded cases.
+ * The message can be the one matched by the first case, by the middle case or
+ * by the last case, or it can be unmatched.
+ *
+ * Run with `-prof gc` to also see the allocation per dispatch, e.g.
+ * `akka-bench-jmh/jmh:run -prof gc .*PFDispatchBenchmark.*`
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class PFDispatchBenchmark {
+
+  @Param({ "1", "10", "50", "200" })
+  public int cases;
+
+  @Param({ "type", "equals", "guarded" })
+  public String kind;
+
+  @Param({ "first", "middle", "last", "unmatched" })
+  public String position;
+
+  private Object message;
+  private FSM.Event<Object> event;
+
+  private PartialFunction<Object, BoxedUnit> receive;
+  private PartialFunction<Object, Object> pf;
+  private PartialFunction<Object, BoxedUnit> unitPf;
+  private PartialFunction<FSM.Event<Object>, FSM.State<Object, Object>> stateFunction;
+
+  private static final AbstractFunction1<Object, Object> unhandled = new AbstractFunction1<Object, Object>() {
+    @Override
+    public Object apply(Object o) {
+      return null;
+    }
+  };
+
+  /**
+   * The type matched by the type-based case `i`, one of the distinct,
+   * unrelated classes of {@link PFDispatchMessages}.
+   */
+  private static Class<?> type(int i) {
+    return instance(i).getClass();
+  }
+
+  private static Object instance(int i) {
+    return PFDispatchMessages.INSTANCES[i];
+  }
+
+  /**
+   * The message matched by case `i`, or an unmatched one for `i == -1`.
+   */
+  private Object message(int i) {
+    if (kind.equals("type"))
+      return i < 0 ? "unmatched" : instance(i);
+    else
+      return Integer.valueOf(i);
+  }
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    ReceiveBuilder receiveBuilder = ReceiveBuilder.create();
+    PFBuilder<Object, Object> pfBuilder = new PFBuilder<Object, Object>();
+    UnitPFBuilder<Object> unitPfBuilder = new UnitPFBuilder<Object>();
+    FSMStateFunctionBuilder<Object, Object> fsmBuilder = new FSMStateFunctionBuilder<Object, Object>();
+
+    for (int i = 0; i < cases; i++) {
+      final int n = i;
+      if (kind.equals("type")) {
+        receiveBuilder.matchUnchecked(type(i), o -> {});
+        pfBuilder.matchUnchecked(type(i), o -> o);
+        unitPfBuilder.matchUnchecked(type(i), o -> {});
+        fsmBuilder.event((Class<Object>) type(i), (e, d) -> null);
+      } else if (kind.equals("equals")) {
+        receiveBuilder.matchEquals(i, o -> {});
+        pfBuilder.matchEquals(i, o -> o);
+        unitPfBuilder.matchEquals(i, o -> {});
+        fsmBuilder.eventEquals(i, (e, d) -> null);
+      } else {
+        receiveBuilder.match(Integer.class, x -> x == n, o -> {});
+        pfBuilder.match(Integer.class, x -> x == n, o -> o);
+        unitPfBuilder.match(Integer.class, x -> x == n, o -> {});
+        fsmBuilder.event(Integer.class, (x, d) -> x == n, (e, d) -> null);
+      }
+    }
+
+    Receive r = receiveBuilder.build();
+    receive = r.onMessage();
+    pf = pfBuilder.build();
+    unitPf = unitPfBuilder.build();
+    stateFunction = fsmBuilder.build();
+
+    switch (position) {
+      case "first":
+        message = message(0);
+        break;
+      case "middle":
+        message = message(cases / 2);
+        break;
+      case "last":
+        message = message(cases - 1);
+        break;
+      default:
+        message = message(-1);
+    }
+    event = new FSM.Event<Object>(message, "data");
+  }
+
+  @Benchmark
+  public void receive(Blackhole bh) {
+    bh.consume(receive.applyOrElse(message, unhandled));
+  }
+
+  @Benchmark
+  public void pfBuilder(Blackhole bh) {
+    bh.consume(pf.applyOrElse(message, unhandled));
+  }
+
+  @Benchmark
+  public void unitPfBuilder(Blackhole bh) {
+    bh.consume(unitPf.applyOrElse(message, unhandled));
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public void fsmStateFunction(Blackhole bh) {
+    bh.consume(((PartialFunction<Object, Object>) (PartialFunction<?, ?>) stateFunction).applyOrElse(event, unhandled));
+  }
+}
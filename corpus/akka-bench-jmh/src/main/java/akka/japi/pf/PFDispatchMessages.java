@@ -0,0 +1,823 @@
+/**
+ * Copyright (C) 2009-2017 Lightbend Inc. <http://www.lightbend.com>
+ */
+
+package akka.japi.pf;
+
+/**
+ * Distinct, unrelated message classes for {@link PFDispatchBenchmark}, which
+ * needs one class per type-based case. They are plain classes like ordinary
+ * messages, so that they take the same path through the class index.
+ */
+final class PFDispatchMessages {
+
+  private PFDispatchMessages() {
+  }
+
+  /**
+   * One instance of each class, the one matched by the type-based case {@code i}
+   * being at index {@code i}.
+   */
+  static final Object[] INSTANCES = {
+    new M0(),
+    new M1(),
+    new M2(),
+    new M3(),
+    new M4(),
+    new M5(),
+    new M6(),
+    new M7(),
+    new M8(),
+    new M9(),
+    new M10(),
+    new M11(),
+    new M12(),
+    new M13(),
+    new M14(),
+    new M15(),
+    new M16(),
+    new M17(),
+    new M18(),
+    new M19(),
+    new M20(),
+    new M21(),
+    new M22(),
+    new M23(),
+    new M24(),
+    new M25(),
+    new M26(),
+    new M27(),
+    new M28(),
+    new M29(),
+    new M30(),
+    new M31(),
+    new M32(),
+    new M33(),
+    new M34(),
+    new M35(),
+    new M36(),
+    new M37(),
+    new M38(),
+    new M39(),
+    new M40(),
+    new M41(),
+    new M42(),
+    new M43(),
+    new M44(),
+    new M45(),
+    new M46(),
+    new M47(),
+    new M48(),
+    new M49(),
+    new M50(),
+    new M51(),
+    new M52(),
+    new M53(),
+    new M54(),
+    new M55(),
+    new M56(),
+    new M57(),
+    new M58(),
+    new M59(),
+    new M60(),
+    new M61(),
+    new M62(),
+    new M63(),
+    new M64(),
+    new M65(),
+    new M66(),
+    new M67(),
+    new M68(),
+    new M69(),
+    new M70(),
+    new M71(),
+    new M72(),
+    new M73(),
+    new M74(),
+    new M75(),
+    new M76(),
+    new M77(),
+    new M78(),
+    new M79(),
+    new M80(),
+    new M81(),
+    new M82(),
+    new M83(),
+    new M84(),
+    new M85(),
+    new M86(),
+    new M87(),
+    new M88(),
+    new M89(),
+    new M90(),
+    new M91(),
+    new M92(),
+    new M93(),
+    new M94(),
+    new M95(),
+    new M96(),
+    new M97(),
+    new M98(),
+    new M99(),
+    new M100(),
+    new M101(),
+    new M102(),
+    new M103(),
+    new M104(),
+    new M105(),
+    new M106(),
+    new M107(),
+    new M108(),
+    new M109(),
+    new M110(),
+    new M111(),
+    new M112(),
+    new M113(),
+    new M114(),
+    new M115(),
+    new M116(),
+    new M117(),
+    new M118(),
+    new M119(),
+    new M120(),
+    new M121(),
+    new M122(),
+    new M123(),
+    new M124(),
+    new M125(),
+    new M126(),
+    new M127(),
+    new M128(),
+    new M129(),
+    new M130(),
+    new M131(),
+    new M132(),
+    new M133(),
+    new M134(),
+    new M135(),
+    new M136(),
+    new M137(),
+    new M138(),
+    new M139(),
+    new M140(),
+    new M141(),
+    new M142(),
+    new M143(),
+    new M144(),
+    new M145(),
+    new M146(),
+    new M147(),
+    new M148(),
+    new M149(),
+    new M150(),
+    new M151(),
+    new M152(),
+    new M153(),
+    new M154(),
+    new M155(),
+    new M156(),
+    new M157(),
+    new M158(),
+    new M159(),
+    new M160(),
+    new M161(),
+    new M162(),
+    new M163(),
+    new M164(),
+    new M165(),
+    new M166(),
+    new M167(),
+    new M168(),
+    new M169(),
+    new M170(),
+    new M171(),
+    new M172(),
+    new M173(),
+    new M174(),
+    new M175(),
+    new M176(),
+    new M177(),
+    new M178(),
+    new M179(),
+    new M180(),
+    new M181(),
+    new M182(),
+    new M183(),
+    new M184(),
+    new M185(),
+    new M186(),
+    new M187(),
+    new M188(),
+    new M189(),
+    new M190(),
+    new M191(),
+    new M192(),
+    new M193(),
+    new M194(),
+    new M195(),
+    new M196(),
+    new M197(),
+    new M198(),
+    new M199()
+  };
+
+  static final class M0 {
+  }
+
+  static final class M1 {
+  }
+
+  static final class M2 {
+  }
+
+  static final class M3 {
+  }
+
+  static final class M4 {
+  }
+
+  static final class M5 {
+  }
+
+  static final class M6 {
+  }
+
+  static final class M7 {
+  }
+
+  static final class M8 {
+  }
+
+  static final class M9 {
+  }
+
+  static final class M10 {
+  }
+
+  static final class M11 {
+  }
+
+  static final class M12 {
+  }
+
+  static final class M13 {
+  }
+
+  static final class M14 {
+  }
+
+  static final class M15 {
+  }
+
+  static final class M16 {
+  }
+
+  static final class M17 {
+  }
+
+  static final class M18 {
+  }
+
+  static final class M19 {
+  }
+
+  static final class M20 {
+  }
+
+  static final class M21 {
+  }
+
+  static final class M22 {
+  }
+
+  static final class M23 {
+  }
+
+  static final class M24 {
+  }
+
+  static final class M25 {
+  }
+
+  static final class M26 {
+  }
+
+  static final class M27 {
+  }
+
+  static final class M28 {
+  }
+
+  static final class M29 {
+  }
+
+  static final class M30 {
+  }
+
+  static final class M31 {
+  }
+
+  static final class M32 {
+  }
+
+  static final class M33 {
+  }
+
+  static final class M34 {
+  }
+
+  static final class M35 {
+  }
+
+  static final class M36 {
+  }
+
+  static final class M37 {
+  }
+
+  static final class M38 {
+  }
+
+  static final class M39 {
+  }
+
+  static final class M40 {
+  }
+
+  static final class M41 {
+  }
+
+  static final class M42 {
+  }
+
+  static final class M43 {
+  }
+
+  static final class M44 {
+  }
+
+  static final class M45 {
+  }
+
+  static final class M46 {
+  }
+
+  static final class M47 {
+  }
+
+  static final class M48 {
+  }
+
+  static final class M49 {
+  }
+
+  static final class M50 {
+  }
+
+  static final class M51 {
+  }
+
+  static final class M52 {
+  }
+
+  static final class M53 {
+  }
+
+  static final class M54 {
+  }
+
+  static final class M55 {
+  }
+
+  static final class M56 {
+  }
+
+  static final class M57 {
+  }
+
+  static final class M58 {
+  }
+
+  static final class M59 {
+  }
+
+  static final class M60 {
+  }
+
+  static final class M61 {
+  }
+
+  static final class M62 {
+  }
+
+  static final class M63 {
+  }
+
+  static final class M64 {
+  }
+
+  static final class M65 {
+  }
+
+  static final class M66 {
+  }
+
+  static final class M67 {
+  }
+
+  static final class M68 {
+  }
+
+  static final class M69 {
+  }
+
+  static final class M70 {
+  }
+
+  static final class M71 {
+  }
+
+  static final class M72 {
+  }
+
+  static final class M73 {
+  }
+
+  static final class M74 {
+  }
+
+  static final class M75 {
+  }
+
+  static final class M76 {
+  }
+
+  static final class M77 {
+  }
+
+  static final class M78 {
+  }
+
+  static final class M79 {
+  }
+
+  static final class M80 {
+  }
+
+  static final class M81 {
+  }
+
+  static final class M82 {
+  }
+
+  static final class M83 {
+  }
+
+  static final class M84 {
+  }
+
+  static final class M85 {
+  }
+
+  static final class M86 {
+  }
+
+  static final class M87 {
+  }
+
+  static final class M88 {
+  }
+
+  static final class M89 {
+  }
+
+  static final class M90 {
+  }
+
+  static final class M91 {
+  }
+
+  static final class M92 {
+  }
+
+  static final class M93 {
+  }
+
+  static final class M94 {
+  }
+
+  static final class M95 {
+  }
+
+  static final class M96 {
+  }
+
+  static final class M97 {
+  }
+
+  static final class M98 {
+  }
+
+  static final class M99 {
+  }
+
+  static final class M100 {
+  }
+
+  static final class M101 {
+  }
+
+  static final class M102 {
+  }
+
+  static final class M103 {
+  }
+
+  static final class M104 {
+  }
+
+  static final class M105 {
+  }
+
+  static final class M106 {
+  }
+
+  static final class M107 {
+  }
+
+  static final class M108 {
+  }
+
+  static final class M109 {
+  }
+
+  static final class M110 {
+  }
+
+  static final class M111 {
+  }
+
+  static final class M112 {
+  }
+
+  static final class M113 {
+  }
+
+  static final class M114 {
+  }
+
+  static final class M115 {
+  }
+
+  static final class M116 {
+  }
+
+  static final class M117 {
+  }
+
+  static final class M118 {
+  }
+
+  static final class M119 {
+  }
+
+  static final class M120 {
+  }
+
+  static final class M121 {
+  }
+
+  static final class M122 {
+  }
+
+  static final class M123 {
+  }
+
+  static final class M124 {
+  }
+
+  static final class M125 {
+  }
+
+  static final class M126 {
+  }
+
+  static final class M127 {
+  }
+
+  static final class M128 {
+  }
+
+  static final class M129 {
+  }
+
+  static final class M130 {
+  }
+
+  static final class M131 {
+  }
+
+  static final class M132 {
+  }
+
+  static final class M133 {
+  }
+
+  static final class M134 {
+  }
+
+  static final class M135 {
+  }
+
+  static final class M136 {
+  }
+
+  static final class M137 {
+  }
+
+  static final class M138 {
+  }
+
+  static final class M139 {
+  }
+
+  static final class M140 {
+  }
+
+  static final class M141 {
+  }
+
+  static final class M142 {
+  }
+
+  static final class M143 {
+  }
+
+  static final class M144 {
+  }
+
+  static final class M145 {
+  }
+
+  static final class M146 {
+  }
+
+  static final class M147 {
+  }
+
+  static final class M148 {
+  }
+
+  static final class M149 {
+  }
+
+  static final class M150 {
+  }
+
+  static final class M151 {
+  }
+
+  static final class M152 {
+  }
+
+  static final class M153 {
+  }
+
+  static final class M154 {
+  }
+
+  static final class M155 {
+  }
+
+  static final class M156 {
+  }
+
+  static final class M157 {
+  }
+
+  static final class M158 {
+  }
+
+  static final class M159 {
+  }
+
+  static final class M160 {
+  }
+
+  static final class M161 {
+  }
+
+  static final class M162 {
+  }
+
+  static final class M163 {
+  }
+
+  static final class M164 {
+  }
+
+  static final class M165 {
+  }
+
+  static final class M166 {
+  }
+
+  static final class M167 {
+  }
+
+  static final class M168 {
+  }
+
+  static final class M169 {
+  }
+
+  static final class M170 {
+  }
+
+  static final class M171 {
+  }
+
+  static final class M172 {
+  }
+
+  static final class M173 {
+  }
+
+  static final class M174 {
+  }
+
+  static final class M175 {
+  }
+
+  static final class M176 {
+  }
+
+  static final class M177 {
+  }
+
+  static final class M178 {
+  }
+
+  static final class M179 {
+  }
+
+  static final class M180 {
+  }
+
+  static final class M181 {
+  }
+
+  static final class M182 {
+  }
+
+  static final class M183 {
+  }
+
+  static final class M184 {
+  }
+
+  static final class M185 {
+  }
+
+  static final class M186 {
+  }
+
+  static final class M187 {
+  }
+
+  static final class M188 {
+  }
+
+  static final class M189 {
+  }
+
+  static final class M190 {
+  }
+
+  static final class M191 {
+  }
+
+  static final class M192 {
+  }
+
+  static final class M193 {
+  }
+
+  static final class M194 {
+  }
+
+  static final class M195 {
+  }
+
+  static final class M196 {
+  }
+
+  static final class M197 {
+  }
+
+  static final class M198 {
+  }
+
+  static final class M199 {
+  }
+}